@@ -1,7 +1,16 @@
+import com.example.weatherviewingapp.gazetteer.GenerateGazetteerTask
+
 plugins {
     alias(libs.plugins.android.application)
 }
 
+// Offline city list: gazetteer/cities.tsv -> assets/gazetteer.bin (see buildSrc)
+val gazetteerDir = layout.buildDirectory.dir("generated/gazetteer")
+val generateGazetteer = tasks.register<GenerateGazetteerTask>("generateGazetteer") {
+    source.set(layout.projectDirectory.file("gazetteer/cities.tsv"))
+    outputDir.set(gazetteerDir)
+}
+
 android {
     namespace = "com.example.weatherviewingapp"
     compileSdk = 36
@@ -14,6 +23,21 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // OpenWeatherMap API key - the only place it is defined.
+        // Use your own with -PowmApiKey=... or owmApiKey=... in ~/.gradle/gradle.properties
+        val owmApiKey = providers.gradleProperty("owmApiKey")
+            .getOrElse("c087fa97752f540e360b43023b2d945a")
+        buildConfigField("String", "OWM_API_KEY", "\"$owmApiKey\"")
+
+        // API host - point it at a local stub server with -PowmBaseUrl=http://127.0.0.1:8080
+        val owmBaseUrl = providers.gradleProperty("owmBaseUrl")
+            .getOrElse("https://api.openweathermap.org")
+        buildConfigField("String", "OWM_BASE_URL", "\"$owmBaseUrl\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -29,6 +53,36 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    sourceSets {
+        getByName("main") {
+            assets.srcDir(gazetteerDir)
+        }
+    }
+    androidResources {
+        // gazetteer.bin is memory-mapped straight from the APK, so keep it uncompressed
+        noCompress += "bin"
+    }
+}
+
+tasks.named("preBuild") {
+    dependsOn(generateGazetteer)
+}
+
+tasks.withType<Test>().configureEach {
+    // GazetteerBenchmarkTest reads the generated file
+    dependsOn(generateGazetteer)
+    systemProperty("gazetteer.file",
+        gazetteerDir.get().file(GenerateGazetteerTask.FILE_NAME).asFile.path)
+    // Benchmarks only run on request (timings are logged, not asserted):
+    // -PstubBenchmarks for StubPipelineBenchmarkTest, -PgazetteerBenchmarks for
+    // GazetteerBenchmarkTest.lookupLatency
+    if (providers.gradleProperty("stubBenchmarks").isPresent) {
+        systemProperty("stub.benchmarks", "true")
+        systemProperty("robolectric.logging", "stdout")
+    }
+    if (providers.gradleProperty("gazetteerBenchmarks").isPresent) {
+        systemProperty("gazetteer.benchmarks", "true")
+    }
 }
 
 dependencies {
@@ -41,6 +95,7 @@ dependencies {
     implementation("androidx.cardview:cardview:1.0.0")
     implementation("androidx.viewpager2:viewpager2:1.0.0")
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
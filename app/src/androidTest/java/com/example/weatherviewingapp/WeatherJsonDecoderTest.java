@@ -0,0 +1,229 @@
+package com.example.weatherviewingapp;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streaming decoder vs. the legacy readLine + org.json path:
+ * same results, fewer allocations.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WeatherJsonDecoderTest {
+
+    private static final String TAG = "WeatherJsonDecoderTest";
+
+    private static final String WEATHER_JSON = "{\"coord\":{\"lon\":105.84,\"lat\":21.02},"
+            + "\"weather\":[{\"id\":803,\"main\":\"Clouds\",\"description\":\"mây cụm\",\"icon\":\"04d\"}],"
+            + "\"base\":\"stations\",\"main\":{\"temp\":28.5,\"feels_like\":31.2,\"temp_min\":28,"
+            + "\"temp_max\":29,\"pressure\":1010,\"humidity\":70},\"visibility\":10000,"
+            + "\"wind\":{\"speed\":3.1,\"deg\":120},\"rain\":{\"1h\":0.4},\"clouds\":{\"all\":75},"
+            + "\"dt\":1700000000,\"sys\":{\"type\":1,\"id\":9308,\"country\":\"VN\","
+            + "\"sunrise\":1699990000,\"sunset\":1700030000},\"timezone\":25200,"
+            + "\"id\":1581130,\"name\":\"Hanoi\",\"cod\":200}";
+
+    private static final String GEO_JSON = "[{\"name\":\"Hanoi\","
+            + "\"local_names\":{\"vi\":\"Hà Nội\",\"en\":\"Hanoi\",\"fr\":\"Hanoï\"},"
+            + "\"lat\":21.0283,\"lon\":105.854,\"country\":\"VN\"},"
+            + "{\"name\":\"Hanover\",\"lat\":43.7,\"lon\":-72.28,\"country\":\"US\",\"state\":\"New Hampshire\"}]";
+
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void decodeWeather_matchesLegacyParser() throws Exception {
+        WeatherApiClient.WeatherData legacy = WeatherApiClient.parseWeatherJson(WEATHER_JSON);
+        WeatherApiClient.WeatherData streamed = WeatherJsonDecoder.decodeWeather(stream(WEATHER_JSON));
+
+        assertEquals(1581130, streamed.cityId);
+        assertEquals(legacy.cityId, streamed.cityId);
+        assertEquals(legacy.cityName, streamed.cityName);
+        assertEquals(legacy.temperature, streamed.temperature, 0.0);
+        assertEquals(legacy.feelsLike, streamed.feelsLike, 0.0);
+        assertEquals(legacy.description, streamed.description);
+        assertEquals(legacy.weatherId, streamed.weatherId);
+        assertEquals(legacy.humidity, streamed.humidity);
+        assertEquals(legacy.pressure, streamed.pressure);
+        assertEquals(legacy.windSpeed, streamed.windSpeed, 0.0);
+        assertEquals(legacy.windDeg, streamed.windDeg);
+        assertEquals(legacy.visibility, streamed.visibility);
+        assertEquals(legacy.clouds, streamed.clouds);
+        assertEquals(legacy.sunrise, streamed.sunrise);
+        assertEquals(legacy.sunset, streamed.sunset);
+        assertEquals(legacy.rain1h, streamed.rain1h, 0.0);
+    }
+
+    @Test
+    public void decodeGroup_splitsCities() throws Exception {
+        String json = "{\"cnt\":2,\"list\":[" + WEATHER_JSON + ","
+                + WEATHER_JSON.replace("1581130", "1566083").replace("Hanoi", "Ho Chi Minh City") + "]}";
+        List<WeatherApiClient.WeatherData> cities = WeatherJsonDecoder.decodeGroup(stream(json));
+
+        assertEquals(2, cities.size());
+        assertEquals(1581130, cities.get(0).cityId);
+        assertEquals("Hanoi", cities.get(0).cityName);
+        assertEquals(1566083, cities.get(1).cityId);
+        assertEquals("Ho Chi Minh City", cities.get(1).cityName);
+        assertEquals(28.5, cities.get(1).temperature, 0.0);
+    }
+
+    @Test
+    public void decodeForecast_matchesLegacyParser() throws Exception {
+        String json = buildForecastJson();
+        List<WeatherApiClient.ForecastDay> legacy = WeatherApiClient.parseForecastJson(json);
+        List<WeatherApiClient.ForecastDay> streamed = WeatherJsonDecoder.decodeForecast(stream(json));
+
+        assertEquals(legacy.size(), streamed.size());
+        for (int i = 0; i < legacy.size(); i++) {
+            assertEquals(legacy.get(i).date, streamed.get(i).date);
+            assertEquals(legacy.get(i).dayName, streamed.get(i).dayName);
+            assertEquals(legacy.get(i).maxTemp, streamed.get(i).maxTemp, 0.0);
+            assertEquals(legacy.get(i).minTemp, streamed.get(i).minTemp, 0.0);
+            assertEquals(legacy.get(i).weatherId, streamed.get(i).weatherId);
+        }
+    }
+
+    @Test
+    public void decodeForecast_groupsByLocalDayInOrder() throws Exception {
+        // UTC-5, below freezing: the 03:00 UTC slot is still the previous local day
+        long start = 1700017200L; // 2023-11-15 03:00:00 UTC = 2023-11-14 22:00 local
+        StringBuilder sb = new StringBuilder("{\"cod\":\"200\",\"cnt\":16,\"list\":[");
+        for (int i = 0; i < 16; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"dt\":").append(start + i * 10800L)
+              .append(",\"main\":{\"temp\":").append(-10 - i * 0.5).append('}')
+              .append(",\"weather\":[{\"id\":600,\"main\":\"Snow\",\"description\":\"tuyết nhẹ\"}]}");
+        }
+        sb.append("],\"city\":{\"id\":5128581,\"name\":\"New York\",\"timezone\":-18000}}");
+        String json = sb.toString();
+
+        List<WeatherApiClient.ForecastDay> days = WeatherJsonDecoder.decodeForecast(stream(json));
+
+        assertEquals(3, days.size());
+        assertEquals("2023-11-14", days.get(0).date);
+        assertEquals("T3", days.get(0).dayName); // long past, so not "Hôm nay"
+        assertEquals(-10.0, days.get(0).maxTemp, 0.0);
+        assertEquals("2023-11-15", days.get(1).date);
+        assertEquals("T4", days.get(1).dayName);
+        assertEquals(-10.5, days.get(1).maxTemp, 0.0);
+        assertEquals(-14.0, days.get(1).minTemp, 0.0);
+        assertEquals("2023-11-16", days.get(2).date);
+        assertEquals("T5", days.get(2).dayName);
+
+        List<WeatherApiClient.ForecastDay> legacy = WeatherApiClient.parseForecastJson(json);
+        for (int i = 0; i < days.size(); i++) {
+            assertEquals(days.get(i).date, legacy.get(i).date);
+            assertEquals(days.get(i).maxTemp, legacy.get(i).maxTemp, 0.0);
+        }
+    }
+
+    @Test
+    public void decodeGeocoding_skipsLocalNames() throws Exception {
+        List<WeatherApiClient.GeoResult> results = WeatherJsonDecoder.decodeGeocoding(stream(GEO_JSON));
+
+        assertEquals(2, results.size());
+        assertEquals("Hanoi, VN", results.get(0).getDisplayName());
+        assertEquals(21.0283, results.get(0).lat, 0.0);
+        assertEquals("Hanover, New Hampshire, US", results.get(1).getDisplayName());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void decodeForecast_allocatesLessThanLegacyPath() throws Exception {
+        byte[] body = buildForecastJson().getBytes(StandardCharsets.UTF_8);
+
+        // Warm up both paths
+        for (int i = 0; i < 20; i++) {
+            legacyForecast(body);
+            WeatherJsonDecoder.decodeForecast(new ByteArrayInputStream(body));
+        }
+
+        Debug.resetThreadAllocSize();
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < ITERATIONS; i++) {
+            legacyForecast(body);
+        }
+        Debug.stopAllocCounting();
+        long legacyBytes = Debug.getThreadAllocSize() / ITERATIONS;
+        long legacyObjects = Debug.getThreadAllocCount() / ITERATIONS;
+
+        Debug.resetThreadAllocSize();
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < ITERATIONS; i++) {
+            WeatherJsonDecoder.decodeForecast(new ByteArrayInputStream(body));
+        }
+        Debug.stopAllocCounting();
+        long streamedBytes = Debug.getThreadAllocSize() / ITERATIONS;
+        long streamedObjects = Debug.getThreadAllocCount() / ITERATIONS;
+
+        Log.i(TAG, String.format(Locale.US,
+                "Forecast (%d bytes): legacy %d objects / %d bytes, streaming %d objects / %d bytes",
+                body.length, legacyObjects, legacyBytes, streamedObjects, streamedBytes));
+
+        assertTrue("streaming should allocate fewer objects", streamedObjects < legacyObjects);
+        assertTrue("streaming should allocate fewer bytes", streamedBytes < legacyBytes);
+    }
+
+    /**
+     * The previous path: readLine() into a StringBuilder, then a JSONObject tree
+     */
+    private static List<WeatherApiClient.ForecastDay> legacyForecast(byte[] body) throws Exception {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            response.append(line);
+        }
+        return WeatherApiClient.parseForecastJson(response.toString());
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 40 three-hour slots, shaped like a real /forecast response
+     */
+    private static String buildForecastJson() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long start = 1700006400L; // 2023-11-15 00:00:00 UTC
+
+        StringBuilder sb = new StringBuilder("{\"cod\":\"200\",\"message\":0,\"cnt\":40,\"list\":[");
+        for (int i = 0; i < 40; i++) {
+            long dt = start + i * 10800L;
+            if (i > 0) sb.append(',');
+            sb.append("{\"dt\":").append(dt)
+              .append(",\"main\":{\"temp\":").append(20 + (i % 8)).append(".5")
+              .append(",\"feels_like\":21.3,\"temp_min\":19.2,\"temp_max\":22.8,\"pressure\":1012,"
+                      + "\"sea_level\":1012,\"grnd_level\":1010,\"humidity\":60,\"temp_kf\":0}")
+              .append(",\"weather\":[{\"id\":").append(800 + (i % 4))
+              .append(",\"main\":\"Clouds\",\"description\":\"mây rải rác\",\"icon\":\"03d\"}]")
+              .append(",\"clouds\":{\"all\":40},\"wind\":{\"speed\":2.5,\"deg\":90,\"gust\":3.1}")
+              .append(",\"visibility\":10000,\"pop\":0.1,\"sys\":{\"pod\":\"d\"}")
+              .append(",\"dt_txt\":\"").append(format.format(new Date(dt * 1000))).append("\"}");
+        }
+        sb.append("],\"city\":{\"id\":1581130,\"name\":\"Hanoi\",\"coord\":{\"lat\":21.0245,\"lon\":105.8412},"
+                + "\"country\":\"VN\",\"population\":1431270,\"timezone\":25200,"
+                + "\"sunrise\":1699989600,\"sunset\":1700030000}}");
+        return sb.toString();
+    }
+}
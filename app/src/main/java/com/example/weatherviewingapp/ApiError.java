@@ -0,0 +1,163 @@
+package com.example.weatherviewingapp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Why an API request failed
+ *
+ * Thrown by the fetch tasks and passed to the callbacks instead of a plain
+ * message, so screens can switch on getKind() rather than parse strings.
+ */
+public class ApiError extends IOException {
+
+    public enum Kind {
+        NETWORK, // no connection, DNS failure, connection reset...
+        TIMEOUT,
+        NOT_FOUND, // 404 - unknown city
+        UNAUTHORIZED, // 401 - bad API key
+        RATE_LIMITED, // 429 - quota exceeded
+        SERVER, // 5xx
+        BAD_RESPONSE, // unexpected status or body we could not parse
+        CIRCUIT_OPEN, // not sent: the endpoint is failing (see CircuitBreaker)
+        THROTTLED, // not sent: over our own request budget (see QuotaGovernor)
+        INVALID_REQUEST // not sent: missing parameters
+    }
+
+    private final Kind kind;
+    private final String endpoint;
+    private final int httpCode; // 0 if there was no HTTP response
+    private final long retryAfterMillis; // -1 if unknown
+
+    public ApiError(Kind kind, String endpoint, int httpCode, long retryAfterMillis,
+                    String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.endpoint = endpoint;
+        this.httpCode = httpCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Error for a response with an unexpected status code
+     * @param retryAfter Retry-After header value, may be null
+     */
+    public static ApiError fromStatus(String endpoint, int code, String retryAfter) {
+        Kind kind;
+        if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+            kind = Kind.NOT_FOUND;
+        } else if (code == HttpURLConnection.HTTP_UNAUTHORIZED) {
+            kind = Kind.UNAUTHORIZED;
+        } else if (code == 429) {
+            kind = Kind.RATE_LIMITED;
+        } else if (code >= 500) {
+            kind = Kind.SERVER;
+        } else {
+            kind = Kind.BAD_RESPONSE;
+        }
+        return new ApiError(kind, endpoint, code, parseRetryAfter(retryAfter),
+                endpoint + ": HTTP " + code, null);
+    }
+
+    /**
+     * Error for a request that failed before a response arrived
+     */
+    public static ApiError fromException(String endpoint, IOException e) {
+        if (e instanceof ApiError) {
+            return (ApiError) e;
+        }
+        Kind kind = e instanceof SocketTimeoutException ? Kind.TIMEOUT : Kind.NETWORK;
+        return new ApiError(kind, endpoint, 0, -1, endpoint + ": network error: " + e.getMessage(), e);
+    }
+
+    /**
+     * Response body could not be decoded
+     */
+    public static ApiError badResponse(String endpoint, IOException e) {
+        return new ApiError(Kind.BAD_RESPONSE, endpoint, HttpURLConnection.HTTP_OK, -1,
+                endpoint + ": bad response: " + e.getMessage(), e);
+    }
+
+    public static ApiError invalidRequest(String endpoint, String message) {
+        return new ApiError(Kind.INVALID_REQUEST, endpoint, 0, -1, message, null);
+    }
+
+    /**
+     * True if the cancelled task's interrupt, not a network problem, ended the request.
+     * A connection disconnected by the cancellation fails with a plain IOException,
+     * so the thread's interrupt flag counts too.
+     */
+    static boolean isCancellation(IOException e) {
+        return e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)
+                || Thread.currentThread().isInterrupted();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getHttpCode() {
+        return httpCode;
+    }
+
+    /**
+     * How long the server (or the circuit breaker) asked us to wait, -1 if unknown
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Worth trying again later: the request itself was fine
+     */
+    public boolean isTransient() {
+        return kind == Kind.NETWORK || kind == Kind.TIMEOUT
+                || kind == Kind.SERVER || kind == Kind.RATE_LIMITED;
+    }
+
+    /**
+     * Data can't be loaded right now but may be later - show the cached copy meanwhile
+     */
+    public boolean isTemporary() {
+        return isTransient() || kind == Kind.CIRCUIT_OPEN || kind == Kind.THROTTLED;
+    }
+
+    /**
+     * The API (not the device or the request) is in trouble - counts towards the circuit breaker
+     */
+    public boolean isServerFailure() {
+        return kind == Kind.TIMEOUT || kind == Kind.SERVER || kind == Kind.RATE_LIMITED;
+    }
+
+    /**
+     * Retry-After is either delay-seconds or an HTTP date
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds - try the date form
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            Date date = format.parse(value);
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
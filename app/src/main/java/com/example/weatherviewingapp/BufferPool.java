@@ -0,0 +1,65 @@
+package com.example.weatherviewingapp;
+
+import java.util.ArrayDeque;
+
+/**
+ * Small pool of reusable read buffers for response bodies
+ *
+ * Every response used to allocate its own reader buffers plus one String per
+ * line. Buffers are now borrowed here and given back when the body is closed.
+ * The pool is capped, so a burst of parallel requests just allocates extra
+ * buffers that are dropped on release.
+ */
+public final class BufferPool {
+
+    public static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED = 8;
+
+    private static final ArrayDeque<byte[]> byteBuffers = new ArrayDeque<>();
+    private static final ArrayDeque<char[]> charBuffers = new ArrayDeque<>();
+
+    private BufferPool() {
+    }
+
+    public static byte[] acquireBytes() {
+        synchronized (byteBuffers) {
+            byte[] buffer = byteBuffers.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    public static void release(byte[] buffer) {
+        if (buffer == null || buffer.length != BUFFER_SIZE) {
+            return;
+        }
+        synchronized (byteBuffers) {
+            if (byteBuffers.size() < MAX_POOLED) {
+                byteBuffers.addFirst(buffer);
+            }
+        }
+    }
+
+    public static char[] acquireChars() {
+        synchronized (charBuffers) {
+            char[] buffer = charBuffers.pollFirst();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new char[BUFFER_SIZE];
+    }
+
+    public static void release(char[] buffer) {
+        if (buffer == null || buffer.length != BUFFER_SIZE) {
+            return;
+        }
+        synchronized (charBuffers) {
+            if (charBuffers.size() < MAX_POOLED) {
+                charBuffers.addFirst(buffer);
+            }
+        }
+    }
+}
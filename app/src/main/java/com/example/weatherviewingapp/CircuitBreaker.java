@@ -0,0 +1,253 @@
+package com.example.weatherviewingapp;
+
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Circuit breaker for one API endpoint
+ *
+ * - CLOSED: requests go out normally
+ * - OPEN: after FAILURE_THRESHOLD server failures in a row (or one 429),
+ *   requests fail fast with ApiError.Kind.CIRCUIT_OPEN for OPEN_MS
+ *   (or as long as Retry-After asks)
+ * - HALF_OPEN: once that time is up, a single trial request is let through;
+ *   success closes the breaker, failure opens it again
+ *
+ * Only failures of the API itself count (timeouts, 5xx, 429) - being offline
+ * or asking for an unknown city does not. State changes are logged and sent
+ * to the listeners.
+ */
+public class CircuitBreaker {
+
+    private static final String TAG = "CircuitBreaker";
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MS = 30 * 1000;
+    private static final int MAX_HISTORY = 10;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Called on the thread that caused the change (a network thread)
+     */
+    public interface Listener {
+        void onStateChanged(CircuitBreaker breaker, State from, State to);
+    }
+
+    private static final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final ArrayDeque<String> history = new ArrayDeque<>();
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil; // System.nanoTime() deadline while OPEN
+    private boolean trialInFlight; // HALF_OPEN: the one request let through
+
+    // Stats
+    private long opened;
+    private long rejected;
+
+    /**
+     * Breaker shared by every request to an endpoint
+     */
+    public static CircuitBreaker forEndpoint(String endpoint) {
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(endpoint);
+            if (breaker == null) {
+                breaker = new CircuitBreaker(endpoint, FAILURE_THRESHOLD, OPEN_MS);
+                breakers.put(endpoint, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forget every breaker (tests: one case's failures must not open the next one's breaker)
+     */
+    static void resetAll() {
+        synchronized (breakers) {
+            breakers.clear();
+        }
+    }
+
+    CircuitBreaker(String endpoint, int failureThreshold, long openMillis) {
+        this.endpoint = endpoint;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * May a request be sent now? Every true must be followed by
+     * onSuccess(), onFailure() or release().
+     */
+    public boolean allowRequest() {
+        State from;
+        synchronized (this) {
+            from = state;
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+            } else {
+                rejected++;
+                return false;
+            }
+        }
+        if (from != State.HALF_OPEN) {
+            changed(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * The request got an answer from the API
+     */
+    public void onSuccess() {
+        State from;
+        synchronized (this) {
+            from = state;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            state = State.CLOSED;
+        }
+        if (from != State.CLOSED) {
+            changed(from, State.CLOSED);
+        }
+    }
+
+    /**
+     * The request failed
+     */
+    public void onFailure(ApiError error) {
+        if (!error.isServerFailure()) {
+            if (error.getHttpCode() > 0) {
+                // 404, 401... the API is up and answering
+                onSuccess();
+            } else {
+                // Offline or similar - says nothing about the API
+                release();
+            }
+            return;
+        }
+
+        State from;
+        synchronized (this) {
+            from = state;
+            consecutiveFailures++;
+            trialInFlight = false;
+            boolean open = state == State.HALF_OPEN
+                    || consecutiveFailures >= failureThreshold
+                    || error.getKind() == ApiError.Kind.RATE_LIMITED; // more requests only burn quota
+            if (!open) {
+                return;
+            }
+            long duration = Math.max(openMillis, error.getRetryAfterMillis());
+            openUntil = System.nanoTime() + duration * 1000000L;
+            state = State.OPEN;
+            opened++;
+        }
+        if (from != State.OPEN) {
+            changed(from, State.OPEN);
+        }
+    }
+
+    /**
+     * The request was cancelled or never reached the API (frees the half-open trial)
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Time until a trial request is allowed (0 unless OPEN)
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openUntil - System.nanoTime()) / 1000000L);
+    }
+
+    /**
+     * Error for a request that was not sent because the breaker is open
+     */
+    public ApiError rejection() {
+        return new ApiError(ApiError.Kind.CIRCUIT_OPEN, endpoint, 0, getRemainingOpenMillis(),
+                endpoint + ": circuit open, request not sent", null);
+    }
+
+    private void changed(State from, State to) {
+        Log.i(TAG, endpoint + ": " + from + " -> " + to);
+        synchronized (history) {
+            history.addLast(new SimpleDateFormat("HH:mm:ss", Locale.US).format(new Date())
+                    + " " + endpoint + " " + from + " -> " + to);
+            while (history.size() > MAX_HISTORY) {
+                history.removeFirst();
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.onStateChanged(this, from, to);
+        }
+    }
+
+    /**
+     * State of every breaker and the latest transitions, for the debug screen
+     */
+    public static String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (breakers) {
+            for (CircuitBreaker breaker : breakers.values()) {
+                synchronized (breaker) {
+                    sb.append(String.format(Locale.US, "%s: %s, %d failures in a row, opened %d times, %d rejected\n",
+                            breaker.endpoint, breaker.state, breaker.consecutiveFailures,
+                            breaker.opened, breaker.rejected));
+                }
+            }
+        }
+        synchronized (history) {
+            if (!history.isEmpty()) {
+                sb.append("Transitions:\n");
+                for (String line : history) {
+                    sb.append("  ").append(line).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * City search-as-you-type shared by MainActivity and ManageLocationsActivity
+ *
+ * - Debounce: a query is only sent once typing pauses for DEBOUNCE_MS
+ * - A new query cancels the one still in flight
+ * - Latest query wins: results of an older query are never delivered,
+ *   even if they arrive after newer ones
+ * - Repeating the last query (e.g. "Hanoi " -> "Hanoi") sends nothing
+ * - Matches from the bundled Gazetteer are shown right away; the network is
+ *   only asked when they do not fill the list, and its results are added below
+ *
+ * All methods must be called on the main thread; listener callbacks run there too.
+ */
+public class CityAutocomplete {
+
+    private static final String TAG = "CityAutocomplete";
+
+    public static final int MIN_QUERY_LENGTH = 2;
+    private static final long DEBOUNCE_MS = 300;
+    private static final int MAX_RESULTS = 5;
+
+    // Stats, shared by all screens (main thread only)
+    private static long textChanges;
+    private static long issued;
+    private static long suppressed;
+    private static long cancelledInFlight;
+    private static long staleDropped;
+    private static long offlineShown;
+    private static long offlineAnswered;
+    private static long offlineLookups;
+    private static long offlineNanos;
+
+    /**
+     * Receives suggestions for the latest query
+     */
+    public interface Listener {
+        /**
+         * A request is in flight (true) or nothing is pending any more (false)
+         */
+        void onLoading(boolean loading);
+
+        /**
+         * Suggestions ("City, State, Country") for the latest query, empty on error
+         */
+        void onSuggestions(String query, List<String> suggestions);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private final GeocodingService geocoding;
+    private final Gazetteer gazetteer; // null if the offline list is missing
+
+    private String pendingQuery; // waiting for the debounce delay
+    private String lastQuery; // last query sent
+    private Future<List<WeatherApiClient.GeoResult>> inFlight;
+    private int generation;
+    // Offline matches for lastQuery / pendingQuery, merged with the network results
+    private List<WeatherApiClient.GeoResult> offlineResults = new ArrayList<>();
+    // Display name -> place, for the suggestions currently shown
+    private final Map<String, WeatherApiClient.GeoResult> shown = new HashMap<>();
+
+    private final Runnable issuePending = new Runnable() {
+        @Override
+        public void run() {
+            String query = pendingQuery;
+            pendingQuery = null;
+            if (query != null) {
+                issue(query);
+            }
+        }
+    };
+
+    public CityAutocomplete(Context context, Listener listener) {
+        this.listener = listener;
+        this.geocoding = GeocodingService.getInstance(context);
+        this.gazetteer = Gazetteer.getInstance(context);
+    }
+
+    /**
+     * Place behind a suggestion that is (or was last) shown, or null.
+     * Lets a picked suggestion skip the name -> coordinates lookup.
+     */
+    public WeatherApiClient.GeoResult findSuggestion(String displayName) {
+        return shown.get(displayName);
+    }
+
+    /**
+     * Call from TextWatcher.onTextChanged
+     */
+    public void onTextChanged(CharSequence text) {
+        textChanges++;
+        String query = normalize(text);
+
+        if (query.length() < MIN_QUERY_LENGTH) {
+            cancel();
+            return;
+        }
+
+        if (pendingQuery != null) {
+            // The previous keystroke never got sent
+            suppressed++;
+            pendingQuery = null;
+        }
+        handler.removeCallbacks(issuePending);
+
+        if (query.equals(lastQuery)) {
+            // Same as what is already shown / in flight
+            suppressed++;
+            return;
+        }
+
+        offlineResults = searchOffline(query);
+        if (!offlineResults.isEmpty()) {
+            // Anything still in flight is for an older query
+            cancelInFlight();
+            generation++;
+            offlineShown++;
+            show(query, offlineResults);
+        }
+        if (offlineResults.size() >= MAX_RESULTS) {
+            // The offline list is full - no need to ask the server
+            offlineAnswered++;
+            lastQuery = query;
+            listener.onLoading(false);
+            return;
+        }
+        pendingQuery = query;
+        handler.postDelayed(issuePending, DEBOUNCE_MS);
+    }
+
+    /**
+     * Drop the pending query and cancel the one in flight (call from onDestroy)
+     */
+    public void cancel() {
+        if (pendingQuery != null) {
+            suppressed++;
+            pendingQuery = null;
+        }
+        handler.removeCallbacks(issuePending);
+        cancelInFlight();
+        lastQuery = null;
+        generation++;
+        listener.onLoading(false);
+    }
+
+    private void issue(final String query) {
+        cancelInFlight();
+        final int requestGeneration = ++generation;
+        final List<WeatherApiClient.GeoResult> offline = offlineResults;
+        lastQuery = query;
+        issued++;
+        listener.onLoading(true);
+
+        inFlight = NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.AUTOCOMPLETE,
+                new SearchCitiesTask(geocoding, query),
+                new NetworkExecutor.Callback<List<WeatherApiClient.GeoResult>>() {
+            @Override
+            public void onSuccess(List<WeatherApiClient.GeoResult> results) {
+                deliver(requestGeneration, query, merge(offline, results));
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Log.w(TAG, "Search failed for " + query + ": " + error.getMessage());
+                // Keep whatever the offline list had (may be empty)
+                deliver(requestGeneration, query, offline);
+            }
+        });
+    }
+
+    private void deliver(int requestGeneration, String query, List<WeatherApiClient.GeoResult> results) {
+        if (requestGeneration != generation) {
+            // A newer query was sent meanwhile
+            staleDropped++;
+            return;
+        }
+        inFlight = null;
+        listener.onLoading(false);
+        show(query, results);
+    }
+
+    private void show(String query, List<WeatherApiClient.GeoResult> results) {
+        shown.clear();
+        List<String> names = new ArrayList<>(results.size());
+        for (WeatherApiClient.GeoResult city : results) {
+            String name = city.getDisplayName();
+            if (!shown.containsKey(name)) {
+                shown.put(name, city);
+                names.add(name);
+            }
+        }
+        listener.onSuggestions(query, names);
+    }
+
+    private List<WeatherApiClient.GeoResult> searchOffline(String query) {
+        if (gazetteer == null) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        List<WeatherApiClient.GeoResult> results = gazetteer.search(query, MAX_RESULTS);
+        offlineLookups++;
+        offlineNanos += System.nanoTime() - start;
+        return results;
+    }
+
+    /**
+     * Offline matches first (ranked by population), then new places from the server
+     */
+    private static List<WeatherApiClient.GeoResult> merge(List<WeatherApiClient.GeoResult> offline,
+                                                          List<WeatherApiClient.GeoResult> network) {
+        List<WeatherApiClient.GeoResult> merged = new ArrayList<>(offline);
+        for (WeatherApiClient.GeoResult city : network) {
+            if (merged.size() >= MAX_RESULTS) {
+                break;
+            }
+            boolean duplicate = false;
+            for (WeatherApiClient.GeoResult known : offline) {
+                if (Gazetteer.fold(known.name).equals(Gazetteer.fold(city.name))
+                        && known.country.equalsIgnoreCase(city.country)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                merged.add(city);
+            }
+        }
+        return merged;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            if (inFlight.cancel(true)) {
+                cancelledInFlight++;
+            }
+            inFlight = null;
+        }
+    }
+
+    /**
+     * "  ho  chi minh " -> "ho chi minh"
+     */
+    static String normalize(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toString().trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Autocomplete stats for the debug screen
+     */
+    public static String dumpStats() {
+        return String.format(Locale.US,
+                "Text changes: %d\nQueries issued: %d, suppressed: %d\n"
+                        + "Cancelled in flight: %d, stale results dropped: %d\n"
+                        + "Offline suggestions: %d, answered offline: %d\nAvg offline lookup: %.3f ms\n",
+                textChanges, issued, suppressed, cancelledInFlight, staleDropped,
+                offlineShown, offlineAnswered,
+                offlineLookups == 0 ? 0.0 : offlineNanos / 1e6 / offlineLookups);
+    }
+
+    /**
+     * Geocoding lookup for a query
+     */
+    private static class SearchCitiesTask implements Callable<List<WeatherApiClient.GeoResult>> {
+        private final GeocodingService geocoding;
+        private final String query;
+
+        SearchCitiesTask(GeocodingService geocoding, String query) {
+            this.geocoding = geocoding;
+            this.query = query;
+        }
+
+        @Override
+        public List<WeatherApiClient.GeoResult> call() throws Exception {
+            return geocoding.search(query, MAX_RESULTS);
+        }
+    }
+}
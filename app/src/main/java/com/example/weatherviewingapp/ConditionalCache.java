@@ -0,0 +1,126 @@
+package com.example.weatherviewingapp;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Validators (ETag / Last-Modified) per request key, together with the
+ * already parsed result of the last 200 response
+ *
+ * Requests send If-None-Match / If-Modified-Since from here. On a 304 the
+ * stored value is returned as is, so the body is neither downloaded nor
+ * parsed again. Only the most recently used keys are kept.
+ */
+public class ConditionalCache<T> {
+
+    private static final int MAX_ENTRIES = 32;
+
+    private final Map<String, Entry<T>> entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Stats
+    private long revalidations; // requests sent with a validator
+    private long notModified; // 304 - cached value reused
+    private long modified; // 200 although we had a validator
+    private long noValidator; // 200 responses without ETag / Last-Modified
+
+    /**
+     * Conditional request headers for a key, or null if nothing is cached
+     */
+    public synchronized Map<String, String> requestHeaders(String key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        revalidations++;
+        Map<String, String> headers = new HashMap<>();
+        if (entry.etag != null) {
+            headers.put("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            headers.put("If-Modified-Since", entry.lastModified);
+        }
+        return headers;
+    }
+
+    /**
+     * Value to reuse after a 304, or null if the entry was evicted meanwhile
+     */
+    public synchronized T notModified(String key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        notModified++;
+        return entry.value;
+    }
+
+    /**
+     * Cached value without touching the stats, or null
+     */
+    public synchronized T peek(String key) {
+        Entry<T> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Load validators and value kept elsewhere (e.g. the disk cache after a restart)
+     */
+    public synchronized void seed(String key, String etag, String lastModified, T value) {
+        if (etag != null || lastModified != null) {
+            entries.put(key, new Entry<>(etag, lastModified, value));
+        }
+    }
+
+    /**
+     * Remember the parsed value of a 200 response and its validators
+     */
+    public synchronized void store(String key, String etag, String lastModified, T value) {
+        if (entries.containsKey(key)) {
+            modified++;
+        }
+        if (etag == null && lastModified == null) {
+            noValidator++;
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, new Entry<>(etag, lastModified, value));
+    }
+
+    /**
+     * Forget every entry (the stats are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Share of conditional requests answered with 304 (0..1)
+     */
+    public synchronized double getHitRate() {
+        return revalidations == 0 ? 0 : (double) notModified / revalidations;
+    }
+
+    public synchronized String dumpStats() {
+        return String.format(Locale.US, "%d revalidated, %d not modified (%.0f%%), %d changed, %d without validators",
+                revalidations, notModified, getHitRate() * 100, modified, noValidator);
+    }
+
+    private static class Entry<T> {
+        final String etag;
+        final String lastModified;
+        final T value;
+
+        Entry(String etag, String lastModified, T value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+}
@@ -3,25 +3,36 @@ package com.example.weatherviewingapp;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Database Helper for managing favorite cities (Ch. 7.c)
  * Uses SQLite for local data persistence
+ * Also keeps resolved city names (geocode_cache) so a name is geocoded once,
+ * and city search results (geocode_search) for the search screens
+ *
+ * Use the shared instance (getInstance()). Its connection is opened once,
+ * off the main thread by StartupOrchestrator, and left open - SQLiteOpenHelper
+ * reuses it - instead of being reopened and closed by every call.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Database Info
     private static final String DATABASE_NAME = "WeatherApp.db";
-    private static final int DATABASE_VERSION = 2; // Incremented for locations table
+    private static final int DATABASE_VERSION = 5; // 2: locations table, 3: OpenWeatherMap city id, 4: geocode cache, 5: search results
     
     // Table Name
     private static final String TABLE_CITIES = "favorite_cities"; // Legacy table
     private static final String TABLE_LOCATIONS = "locations"; // New locations table
+    private static final String TABLE_GEOCODE = "geocode_cache"; // City name -> coordinates
+    private static final String TABLE_GEOCODE_SEARCH = "geocode_search"; // City query -> result list
     
     // Legacy Column Names
     private static final String COLUMN_ID = "id";
@@ -37,6 +48,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COL_LOC_IS_DEFAULT = "is_default";
     private static final String COL_LOC_SORT_ORDER = "sort_order";
     private static final String COL_LOC_LAST_UPDATED = "last_updated";
+    private static final String COL_LOC_CITY_ID = "owm_city_id"; // 0 until the first weather fetch
+    
+    // Geocode Cache Column Names
+    private static final String COL_GEO_QUERY = "query"; // normalized, see GeocodingService.normalize()
+    private static final String COL_GEO_NAME = "name";
+    private static final String COL_GEO_STATE = "state";
+    private static final String COL_GEO_COUNTRY = "country";
+    private static final String COL_GEO_LATITUDE = "latitude";
+    private static final String COL_GEO_LONGITUDE = "longitude";
+    private static final String COL_GEO_RESOLVED_AT = "resolved_at"; // wall clock, ms
+    
+    // Geocode Search Column Names (plus the geocode cache ones above), one row per result
+    private static final String COL_SEARCH_LIMIT = "asked_limit"; // limit the server was asked for
+    private static final String COL_SEARCH_RANK = "result_rank"; // 0 = best match, NO_MATCH_RANK = empty list
+    private static final int NO_MATCH_RANK = -1;
     
     // SQL to create legacy table
     private static final String SQL_CREATE_TABLE = 
@@ -56,13 +82,61 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             COL_LOC_TAG + " TEXT, " +
             COL_LOC_IS_DEFAULT + " INTEGER DEFAULT 0, " +
             COL_LOC_SORT_ORDER + " INTEGER DEFAULT 0, " +
-            COL_LOC_LAST_UPDATED + " INTEGER DEFAULT 0" +
+            COL_LOC_LAST_UPDATED + " INTEGER DEFAULT 0, " +
+            COL_LOC_CITY_ID + " INTEGER DEFAULT 0" +
+            ")";
+    
+    // SQL to create geocode cache table + index for the lookup by query
+    private static final String SQL_CREATE_GEOCODE_TABLE = 
+            "CREATE TABLE " + TABLE_GEOCODE + " (" +
+            COL_GEO_QUERY + " TEXT NOT NULL, " +
+            COL_GEO_NAME + " TEXT NOT NULL, " +
+            COL_GEO_STATE + " TEXT, " +
+            COL_GEO_COUNTRY + " TEXT, " +
+            COL_GEO_LATITUDE + " REAL NOT NULL, " +
+            COL_GEO_LONGITUDE + " REAL NOT NULL, " +
+            COL_GEO_RESOLVED_AT + " INTEGER NOT NULL" +
+            ")";
+    private static final String SQL_CREATE_GEOCODE_INDEX = 
+            "CREATE UNIQUE INDEX idx_geocode_query ON " + TABLE_GEOCODE + " (" + COL_GEO_QUERY + ")";
+    
+    // SQL to create geocode search table + index for the lookup by query, results in rank order
+    private static final String SQL_CREATE_GEOCODE_SEARCH_TABLE = 
+            "CREATE TABLE " + TABLE_GEOCODE_SEARCH + " (" +
+            COL_GEO_QUERY + " TEXT NOT NULL, " +
+            COL_SEARCH_LIMIT + " INTEGER NOT NULL, " +
+            COL_SEARCH_RANK + " INTEGER NOT NULL, " +
+            COL_GEO_NAME + " TEXT, " +
+            COL_GEO_STATE + " TEXT, " +
+            COL_GEO_COUNTRY + " TEXT, " +
+            COL_GEO_LATITUDE + " REAL, " +
+            COL_GEO_LONGITUDE + " REAL, " +
+            COL_GEO_RESOLVED_AT + " INTEGER NOT NULL" +
             ")";
+    private static final String SQL_CREATE_GEOCODE_SEARCH_INDEX = 
+            "CREATE UNIQUE INDEX idx_geocode_search_query ON " + TABLE_GEOCODE_SEARCH + " (" +
+            COL_GEO_QUERY + ", " + COL_SEARCH_RANK + ")";
     
     // SQL to drop tables
     private static final String SQL_DROP_TABLE = "DROP TABLE IF EXISTS " + TABLE_CITIES;
     private static final String SQL_DROP_LOCATIONS_TABLE = "DROP TABLE IF EXISTS " + TABLE_LOCATIONS;
     
+    private static volatile DatabaseHelper instance;
+    
+    /**
+     * Helper shared by the whole app
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+    
     public DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -73,13 +147,33 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(SQL_CREATE_TABLE);
         // Create the new locations table
         db.execSQL(SQL_CREATE_LOCATIONS_TABLE);
+        // Create the geocode cache
+        db.execSQL(SQL_CREATE_GEOCODE_TABLE);
+        db.execSQL(SQL_CREATE_GEOCODE_INDEX);
+        // Create the geocode search cache
+        db.execSQL(SQL_CREATE_GEOCODE_SEARCH_TABLE);
+        db.execSQL(SQL_CREATE_GEOCODE_SEARCH_INDEX);
     }
     
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         if (oldVersion < 2) {
-            // Add locations table in version 2
+            // Add locations table in version 2 (already has the city id column)
             db.execSQL(SQL_CREATE_LOCATIONS_TABLE);
+        } else if (oldVersion < 3) {
+            // City id for batched group refreshes in version 3
+            db.execSQL("ALTER TABLE " + TABLE_LOCATIONS + " ADD COLUMN " +
+                    COL_LOC_CITY_ID + " INTEGER DEFAULT 0");
+        }
+        if (oldVersion < 4) {
+            // Geocode cache in version 4
+            db.execSQL(SQL_CREATE_GEOCODE_TABLE);
+            db.execSQL(SQL_CREATE_GEOCODE_INDEX);
+        }
+        if (oldVersion < 5) {
+            // Geocode search cache in version 5
+            db.execSQL(SQL_CREATE_GEOCODE_SEARCH_TABLE);
+            db.execSQL(SQL_CREATE_GEOCODE_SEARCH_INDEX);
         }
     }
     
@@ -100,7 +194,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_CITY_NAME, cityName);
         
         long result = db.insert(TABLE_CITIES, null, values);
-        db.close();
         
         return result != -1; // -1 means insert failed
     }
@@ -128,7 +221,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return cityList;
     }
@@ -146,7 +238,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return count;
     }
@@ -166,7 +257,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         
         boolean exists = cursor.getCount() > 0;
         cursor.close();
-        db.close();
         
         return exists;
     }
@@ -182,7 +272,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_CITY_NAME + " = ?",
                 new String[]{cityName}
         );
-        db.close();
         
         return rowsDeleted > 0;
     }
@@ -193,7 +282,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void deleteAllCities() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_CITIES, null, null);
-        db.close();
     }
     
     /**
@@ -210,7 +298,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COLUMN_CITY_NAME + " = ?",
                 new String[]{oldName}
         );
-        db.close();
         
         return rowsUpdated > 0;
     }
@@ -232,9 +319,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_LOC_IS_DEFAULT, location.isDefault() ? 1 : 0);
         values.put(COL_LOC_SORT_ORDER, location.getSortOrder());
         values.put(COL_LOC_LAST_UPDATED, location.getLastUpdated());
+        values.put(COL_LOC_CITY_ID, location.getCityId());
         
         long id = db.insert(TABLE_LOCATIONS, null, values);
-        db.close();
         
         return id;
     }
@@ -261,11 +348,30 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return locations;
     }
     
+    /**
+     * READ: Saved location whose city name or full name ("City, CC") matches,
+     * preferring the default one; null if none
+     */
+    public Location findLocationByName(String name) {
+        Location found = null;
+        for (Location location : getAllLocations()) {
+            if (location.getCityName().equalsIgnoreCase(name)
+                    || location.getFullName().equalsIgnoreCase(name)) {
+                if (location.isDefault()) {
+                    return location; // Prefer the default when two saved places share a name
+                }
+                if (found == null) {
+                    found = location;
+                }
+            }
+        }
+        return found;
+    }
+    
     /**
      * READ: Get location by ID
      */
@@ -285,7 +391,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return location;
     }
@@ -309,7 +414,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return location;
     }
@@ -329,6 +433,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_LOC_IS_DEFAULT, location.isDefault() ? 1 : 0);
         values.put(COL_LOC_SORT_ORDER, location.getSortOrder());
         values.put(COL_LOC_LAST_UPDATED, location.getLastUpdated());
+        values.put(COL_LOC_CITY_ID, location.getCityId());
         
         int rowsUpdated = db.update(
                 TABLE_LOCATIONS,
@@ -336,7 +441,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_LOC_ID + " = ?",
                 new String[]{String.valueOf(location.getId())}
         );
-        db.close();
         
         return rowsUpdated > 0;
     }
@@ -361,7 +465,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_LOC_ID + " = ?",
                 new String[]{String.valueOf(locationId)}
         );
-        db.close();
+        
+        return rowsUpdated > 0;
+    }
+    
+    /**
+     * UPDATE: Record a weather refresh (city id learned from the response + time)
+     */
+    public boolean updateLocationRefresh(int locationId, long cityId, long lastUpdated) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_LOC_CITY_ID, cityId);
+        values.put(COL_LOC_LAST_UPDATED, lastUpdated);
+        
+        int rowsUpdated = db.update(
+                TABLE_LOCATIONS,
+                values,
+                COL_LOC_ID + " = ?",
+                new String[]{String.valueOf(locationId)}
+        );
         
         return rowsUpdated > 0;
     }
@@ -376,7 +498,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 COL_LOC_ID + " = ?",
                 new String[]{String.valueOf(id)}
         );
-        db.close();
         
         return rowsDeleted > 0;
     }
@@ -387,7 +508,183 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void deleteAllLocations() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_LOCATIONS, null, null);
-        db.close();
+    }
+    
+    // ==================== Geocode Cache ====================
+    
+    /**
+     * READ: Place a normalized query resolved to, or null if unknown or resolved before minResolvedAt
+     */
+    public WeatherApiClient.GeoResult getGeocode(String query, long minResolvedAt) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(
+                TABLE_GEOCODE,
+                new String[]{COL_GEO_NAME, COL_GEO_STATE, COL_GEO_COUNTRY, COL_GEO_LATITUDE, COL_GEO_LONGITUDE},
+                COL_GEO_QUERY + " = ? AND " + COL_GEO_RESOLVED_AT + " >= ?",
+                new String[]{query, String.valueOf(minResolvedAt)},
+                null, null, null
+        );
+        
+        WeatherApiClient.GeoResult result = null;
+        if (cursor.moveToFirst()) {
+            result = new WeatherApiClient.GeoResult(
+                    cursor.getString(0),
+                    cursor.isNull(1) ? "" : cursor.getString(1),
+                    cursor.isNull(2) ? "" : cursor.getString(2),
+                    cursor.getDouble(3),
+                    cursor.getDouble(4));
+        }
+        cursor.close();
+        
+        return result;
+    }
+    
+    /**
+     * CREATE/UPDATE: Remember what a normalized query resolved to.
+     * Rows resolved before minResolvedAt are dropped, then the oldest ones
+     * beyond maxRows.
+     */
+    public void putGeocode(String query, WeatherApiClient.GeoResult place, long resolvedAt,
+                           long minResolvedAt, int maxRows) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_GEO_QUERY, query);
+        values.put(COL_GEO_NAME, place.name);
+        values.put(COL_GEO_STATE, place.state);
+        values.put(COL_GEO_COUNTRY, place.country);
+        values.put(COL_GEO_LATITUDE, place.lat);
+        values.put(COL_GEO_LONGITUDE, place.lon);
+        values.put(COL_GEO_RESOLVED_AT, resolvedAt);
+        
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(TABLE_GEOCODE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.delete(TABLE_GEOCODE, COL_GEO_RESOLVED_AT + " < ?", new String[]{String.valueOf(minResolvedAt)});
+            db.execSQL("DELETE FROM " + TABLE_GEOCODE + " WHERE rowid NOT IN (SELECT rowid FROM " +
+                    TABLE_GEOCODE + " ORDER BY " + COL_GEO_RESOLVED_AT + " DESC LIMIT " + maxRows + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * READ: Number of cached resolutions
+     */
+    public long getGeocodeCount() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return DatabaseUtils.queryNumEntries(db, TABLE_GEOCODE);
+    }
+    
+    // ==================== Geocode Search ====================
+    
+    /**
+     * READ: Stored search results for some normalized queries, skipping those
+     * resolved before minResolvedAt
+     * @return query -> results in rank order (queries not stored are absent)
+     */
+    public Map<String, GeocodingService.Entry> getGeocodeSearches(List<String> queries, long minResolvedAt) {
+        Map<String, GeocodingService.Entry> searches = new HashMap<>();
+        if (queries.isEmpty()) {
+            return searches;
+        }
+        
+        StringBuilder placeholders = new StringBuilder();
+        String[] args = new String[queries.size() + 1];
+        for (int i = 0; i < queries.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+            args[i] = queries.get(i);
+        }
+        args[queries.size()] = String.valueOf(minResolvedAt);
+        
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(
+                TABLE_GEOCODE_SEARCH,
+                new String[]{COL_GEO_QUERY, COL_SEARCH_LIMIT, COL_SEARCH_RANK, COL_GEO_NAME, COL_GEO_STATE,
+                        COL_GEO_COUNTRY, COL_GEO_LATITUDE, COL_GEO_LONGITUDE, COL_GEO_RESOLVED_AT},
+                COL_GEO_QUERY + " IN (" + placeholders + ") AND " + COL_GEO_RESOLVED_AT + " >= ?",
+                args,
+                null, null, COL_GEO_QUERY + ", " + COL_SEARCH_RANK
+        );
+        
+        // Rows come grouped by query; an entry is built when its last row has been read
+        String query = null;
+        int limit = 0;
+        long resolvedAt = 0;
+        List<WeatherApiClient.GeoResult> results = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            if (!cursor.getString(0).equals(query)) {
+                if (query != null) {
+                    searches.put(query, new GeocodingService.Entry(limit, resolvedAt, results));
+                }
+                query = cursor.getString(0);
+                limit = cursor.getInt(1);
+                resolvedAt = cursor.getLong(8);
+                results = new ArrayList<>();
+            }
+            if (cursor.getInt(2) != NO_MATCH_RANK) {
+                results.add(new WeatherApiClient.GeoResult(
+                        cursor.getString(3),
+                        cursor.isNull(4) ? "" : cursor.getString(4),
+                        cursor.isNull(5) ? "" : cursor.getString(5),
+                        cursor.getDouble(6),
+                        cursor.getDouble(7)));
+            }
+        }
+        if (query != null) {
+            searches.put(query, new GeocodingService.Entry(limit, resolvedAt, results));
+        }
+        cursor.close();
+        
+        return searches;
+    }
+    
+    /**
+     * CREATE/UPDATE: Remember the results of a normalized query (an empty
+     * list too), replacing what it returned before. Searches resolved before
+     * minResolvedAt are dropped, then the oldest ones beyond maxQueries.
+     */
+    public void putGeocodeSearch(String query, int limit, long resolvedAt, List<WeatherApiClient.GeoResult> results,
+                                 long minResolvedAt, int maxQueries) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_GEOCODE_SEARCH, COL_GEO_QUERY + " = ?", new String[]{query});
+            ContentValues values = new ContentValues();
+            values.put(COL_GEO_QUERY, query);
+            values.put(COL_SEARCH_LIMIT, limit);
+            values.put(COL_GEO_RESOLVED_AT, resolvedAt);
+            if (results.isEmpty()) {
+                values.put(COL_SEARCH_RANK, NO_MATCH_RANK);
+                db.insert(TABLE_GEOCODE_SEARCH, null, values);
+            }
+            for (int rank = 0; rank < results.size(); rank++) {
+                WeatherApiClient.GeoResult place = results.get(rank);
+                values.put(COL_SEARCH_RANK, rank);
+                values.put(COL_GEO_NAME, place.name);
+                values.put(COL_GEO_STATE, place.state);
+                values.put(COL_GEO_COUNTRY, place.country);
+                values.put(COL_GEO_LATITUDE, place.lat);
+                values.put(COL_GEO_LONGITUDE, place.lon);
+                db.insert(TABLE_GEOCODE_SEARCH, null, values);
+            }
+            db.delete(TABLE_GEOCODE_SEARCH, COL_GEO_RESOLVED_AT + " < ?", new String[]{String.valueOf(minResolvedAt)});
+            db.execSQL("DELETE FROM " + TABLE_GEOCODE_SEARCH + " WHERE " + COL_GEO_QUERY + " NOT IN (SELECT " +
+                    COL_GEO_QUERY + " FROM " + TABLE_GEOCODE_SEARCH + " GROUP BY " + COL_GEO_QUERY +
+                    " ORDER BY MAX(" + COL_GEO_RESOLVED_AT + ") DESC LIMIT " + maxQueries + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+    
+    /**
+     * READ: Number of stored search queries
+     */
+    public long getGeocodeSearchCount() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(DISTINCT " + COL_GEO_QUERY + ") FROM " + TABLE_GEOCODE_SEARCH, null);
     }
     
     /**
@@ -405,6 +702,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         location.setDefault(cursor.getInt(cursor.getColumnIndexOrThrow(COL_LOC_IS_DEFAULT)) == 1);
         location.setSortOrder(cursor.getInt(cursor.getColumnIndexOrThrow(COL_LOC_SORT_ORDER)));
         location.setLastUpdated(cursor.getLong(cursor.getColumnIndexOrThrow(COL_LOC_LAST_UPDATED)));
+        location.setCityId(cursor.getLong(cursor.getColumnIndexOrThrow(COL_LOC_CITY_ID)));
         
         return location;
     }
@@ -422,7 +720,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
         
         cursor.close();
-        db.close();
         
         return count;
     }
@@ -9,6 +9,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Debug Activity để xem nội dung Database
@@ -36,7 +37,7 @@ public class DebugDatabaseActivity extends AppCompatActivity {
     }
     
     private void loadDatabaseInfo() {
-        DatabaseHelper db = new DatabaseHelper(this);
+        DatabaseHelper db = DatabaseHelper.getInstance(this);
         
         // Get all locations from the NEW table
         List<Location> locations = db.getAllLocations();
@@ -83,6 +84,62 @@ public class DebugDatabaseActivity extends AppCompatActivity {
             }
         }
         
+        // Cold start (warm-up stages and first frame)
+        StartupOrchestrator startup = StartupOrchestrator.getInstance();
+        if (startup != null) {
+            info.append("\n🚀 STARTUP\n");
+            info.append("================\n");
+            info.append(startup.dumpStats());
+        }
+        
+        // Network executor lanes (queue depth / wait time)
+        info.append("\n⚙️ NETWORK EXECUTOR\n");
+        info.append("================\n");
+        info.append(NetworkExecutor.getInstance().dumpStats());
+        
+        // Work dropped because its screen went away
+        info.append("\n🛑 CANCELLED WORK\n");
+        info.append("================\n");
+        info.append(LifecycleScope.dumpStats());
+        
+        // HTTP transport (connection reuse)
+        info.append("\n🌐 HTTP TRANSPORT\n");
+        info.append("================\n");
+        info.append(WeatherApiClient.getTransport().dumpStats());
+        info.append(WeatherApiClient.dumpRequestStats());
+        
+        // Where requests spend their time, per endpoint
+        info.append("\n⏱ LATENCY\n");
+        info.append("================\n");
+        info.append(EndpointMetrics.dumpStats());
+        
+        // City search (debounce / cancellation)
+        info.append("\n🔎 AUTOCOMPLETE\n");
+        info.append("================\n");
+        info.append(CityAutocomplete.dumpStats());
+        info.append(GeocodingService.getInstance(this).dumpStats());
+        
+        // Retries and circuit breakers
+        info.append("\n🛡 RESILIENCE\n");
+        info.append("================\n");
+        info.append(RetryPolicy.dumpStats());
+        info.append(CircuitBreaker.dumpStats());
+        
+        // Request budget (per-minute bucket + daily counter)
+        info.append("\n📊 API QUOTA\n");
+        info.append("================\n");
+        QuotaGovernor governor = QuotaGovernor.getInstance();
+        info.append(String.format(Locale.US, "Calls today: %d / %d\n",
+                WeatherApiClient.getCallsToday(), QuotaGovernor.PER_DAY));
+        if (governor != null) {
+            info.append(governor.dumpStats());
+        }
+        
+        // Background prefetch job (charging + idle + unmetered)
+        info.append("\n🌙 PREFETCH\n");
+        info.append("================\n");
+        info.append(PrefetchJobService.dumpStats(this));
+        
         tvDebugInfo.setText(info.toString());
         
         // Show in ListView - convert to display strings
@@ -101,8 +158,6 @@ public class DebugDatabaseActivity extends AppCompatActivity {
             displayStrings
         );
         lvDebugCities.setAdapter(adapter);
-        
-        db.close();
     }
     
     @Override
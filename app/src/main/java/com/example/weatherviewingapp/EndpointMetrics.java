@@ -0,0 +1,274 @@
+package com.example.weatherviewingapp;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and payload metrics per API endpoint
+ *
+ * Recorded by HttpTransport (connect, time to first byte, total, bytes,
+ * status code) and WeatherApiClient / GeocodingService (parse time, cache
+ * outcome). Everything is plain atomic counters, so recording never blocks a
+ * network thread; a reader may see a request half recorded, which is fine
+ * for telemetry.
+ *
+ * Endpoints are named like WeatherApiClient's ("weather", "forecast",
+ * "group", "geocoding").
+ */
+public class EndpointMetrics {
+
+    /**
+     * How a request was answered with respect to the caches
+     */
+    public enum CacheOutcome {
+        HIT, // served from a cache, nothing sent
+        REVALIDATED, // 304 - cached copy confirmed
+        DOWNLOADED, // full 200 response
+        STALE // request failed, old cached copy served
+    }
+
+    private static final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+
+    // Times in microseconds
+    public final Histogram connect = new Histogram(); // DNS + TCP + TLS, or taking a pooled connection
+    public final Histogram ttfb = new Histogram(); // request sent -> response headers
+    public final Histogram total = new Histogram(); // request start -> body fully read
+    public final Histogram parse = new Histogram();
+    public final Histogram bytes = new Histogram(); // response body on the wire
+
+    private final AtomicLongArray statusCodes = new AtomicLongArray(600);
+    private final AtomicLong failures = new AtomicLong(); // no response at all
+    private final AtomicLongArray cacheOutcomes = new AtomicLongArray(CacheOutcome.values().length);
+
+    /**
+     * Metrics of an endpoint (created on first use)
+     */
+    public static EndpointMetrics forEndpoint(String endpoint) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if (metrics == null) {
+            endpoints.putIfAbsent(endpoint, new EndpointMetrics(endpoint));
+            metrics = endpoints.get(endpoint);
+        }
+        return metrics;
+    }
+
+    /**
+     * Metrics for a request path ("/data/2.5/weather", "/geo/1.0/direct")
+     */
+    static EndpointMetrics forPath(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.isEmpty()) {
+            name = "/";
+        } else if ("direct".equals(name)) {
+            name = WeatherApiClient.ENDPOINT_GEOCODING;
+        }
+        return forEndpoint(name);
+    }
+
+    /**
+     * Endpoints with metrics so far
+     */
+    public static Set<String> getEndpoints() {
+        return new TreeMap<>(endpoints).keySet();
+    }
+
+    private EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void recordStatus(int code) {
+        if (code >= 0 && code < statusCodes.length()) {
+            statusCodes.incrementAndGet(code);
+        }
+    }
+
+    public void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    public void recordCache(CacheOutcome outcome) {
+        cacheOutcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    public long getStatusCount(int code) {
+        return code >= 0 && code < statusCodes.length() ? statusCodes.get(code) : 0;
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getCacheCount(CacheOutcome outcome) {
+        return cacheOutcomes.get(outcome.ordinal());
+    }
+
+    /**
+     * Microseconds since a System.nanoTime() start
+     */
+    static long micros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+
+    // ==================== Stats ====================
+
+    /**
+     * Percentiles of every endpoint, for the debug screen
+     */
+    public static String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : getEndpoints()) {
+            forEndpoint(name).dump(sb);
+        }
+        return sb.toString();
+    }
+
+    private void dump(StringBuilder sb) {
+        sb.append(endpoint).append(" (p50 / p95 / p99 ms):\n");
+        dumpTime(sb, "connect", connect);
+        dumpTime(sb, "ttfb", ttfb);
+        dumpTime(sb, "total", total);
+        dumpTime(sb, "parse", parse);
+        if (bytes.getCount() > 0) {
+            sb.append(String.format(Locale.US, "  %-8s %d / %d / %d B\n", "bytes",
+                    bytes.getPercentile(50), bytes.getPercentile(95), bytes.getPercentile(99)));
+        }
+
+        StringBuilder codes = new StringBuilder();
+        for (int code = 0; code < statusCodes.length(); code++) {
+            long count = statusCodes.get(code);
+            if (count > 0) {
+                codes.append(' ').append(code).append('=').append(count);
+            }
+        }
+        if (failures.get() > 0) {
+            codes.append(" failed=").append(failures.get());
+        }
+        if (codes.length() > 0) {
+            sb.append("  status  ").append(codes).append('\n');
+        }
+
+        StringBuilder cache = new StringBuilder();
+        for (CacheOutcome outcome : CacheOutcome.values()) {
+            long count = cacheOutcomes.get(outcome.ordinal());
+            if (count > 0) {
+                cache.append(' ').append(outcome.name().toLowerCase(Locale.ROOT)).append(' ').append(count);
+            }
+        }
+        if (cache.length() > 0) {
+            sb.append("  cache  ").append(cache).append('\n');
+        }
+    }
+
+    private static void dumpTime(StringBuilder sb, String label, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        sb.append(String.format(Locale.US, "  %-8s %.1f / %.1f / %.1f (n=%d)\n", label,
+                histogram.getPercentile(50) / 1000.0, histogram.getPercentile(95) / 1000.0,
+                histogram.getPercentile(99) / 1000.0, histogram.getCount()));
+    }
+
+    // ==================== Histogram ====================
+
+    /**
+     * Lock-free log-linear histogram of non-negative values
+     *
+     * Values below SUB_BUCKETS get a bucket each; above that every power of
+     * two is split into SUB_BUCKETS buckets, so a reported percentile is at
+     * most 1 / SUB_BUCKETS (12.5%) above the true value. Covers 0 to 2^40
+     * (about 12 days in microseconds) in 312 buckets.
+     */
+    public static class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long seen = max.get();
+            while (value > seen && !max.compareAndSet(seen, value)) {
+                seen = max.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * Value at or below which the given percent of recorded values fall
+         * (upper edge of its bucket, never above the max), 0 if empty
+         */
+        public long getPercentile(double percent) {
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                n += counts.get(i);
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(n * percent / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+            int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return (1L << exponent) + (sub + 1) * width - 1;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline city list bundled as assets/gazetteer.bin (generated at build time
+ * from app/gazetteer/cities.tsv by buildSrc GazetteerGenerator)
+ *
+ * The file is memory-mapped, not loaded: a lookup is a binary search over
+ * the sorted key table plus a short scan, reading only the pages it touches.
+ * Keys are folded names ("Hà Nội" -> "hanoi"), so "ha noi", "hanoi" and
+ * "Hà Nội" all match. Matches are ranked by population.
+ *
+ * See GazetteerGenerator for the file layout.
+ */
+public class Gazetteer {
+
+    private static final String TAG = "Gazetteer";
+
+    public static final String ASSET_NAME = "gazetteer.bin";
+    private static final int MAGIC = 0x475A5431; // "GZT1"
+    private static final int VERSION = 1;
+    private static final int PLACE_SIZE = 20;
+    private static final int KEY_SIZE = 8;
+    // Stop scanning after this many keys (very short prefixes on a big list)
+    private static final int MAX_SCAN = 2048;
+
+    private static volatile Gazetteer instance;
+    private static volatile boolean unavailable;
+
+    private final ByteBuffer data;
+    private final int placeCount;
+    private final int keyCount;
+    private final int placesOffset;
+    private final int keysOffset;
+    private final int stringsOffset;
+
+    /**
+     * Memory-map the bundled gazetteer (once). Returns null if the asset is missing
+     * or stored compressed.
+     */
+    public static Gazetteer getInstance(Context context) {
+        if (instance == null && !unavailable) {
+            synchronized (Gazetteer.class) {
+                if (instance == null && !unavailable) {
+                    try {
+                        instance = new Gazetteer(map(context));
+                    } catch (IOException e) {
+                        Log.w(TAG, "Offline city list not available: " + e.getMessage());
+                        unavailable = true;
+                    }
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static ByteBuffer map(Context context) throws IOException {
+        // Only works because the asset is stored uncompressed (noCompress "bin")
+        try (AssetFileDescriptor fd = context.getAssets().openFd(ASSET_NAME);
+             FileInputStream in = fd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        }
+    }
+
+    /**
+     * @param data Whole gazetteer file (mapped or in memory)
+     */
+    public Gazetteer(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < 32 || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a gazetteer file");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported gazetteer version " + data.getInt(4));
+        }
+        placeCount = data.getInt(8);
+        keyCount = data.getInt(12);
+        placesOffset = data.getInt(16);
+        keysOffset = data.getInt(20);
+        stringsOffset = data.getInt(24);
+    }
+
+    public int size() {
+        return placeCount;
+    }
+
+    /**
+     * Places whose name (or alternate name) starts with the query, most populous first
+     */
+    public List<WeatherApiClient.GeoResult> search(String query, int limit) {
+        List<WeatherApiClient.GeoResult> results = new ArrayList<>(limit);
+        byte[] prefix = fold(query).getBytes(StandardCharsets.UTF_8);
+        if (prefix.length == 0 || limit <= 0) {
+            return results;
+        }
+
+        // Top `limit` places by population; keys of one place may match several times
+        int[] best = new int[limit];
+        int found = 0;
+        int start = lowerBound(prefix);
+        int end = Math.min(keyCount, start + MAX_SCAN);
+        for (int i = start; i < end && startsWith(keyOffset(i), prefix); i++) {
+            int place = data.getInt(keysOffset + i * KEY_SIZE + 4);
+            if (contains(best, found, place)) {
+                continue;
+            }
+            // Places are stored biggest first, so a lower index means more people
+            if (found < limit) {
+                best[found++] = place;
+            } else if (place < best[found - 1]) {
+                best[found - 1] = place;
+            } else {
+                continue;
+            }
+            for (int j = found - 1; j > 0 && best[j] < best[j - 1]; j--) {
+                int swap = best[j];
+                best[j] = best[j - 1];
+                best[j - 1] = swap;
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            results.add(place(best[i]));
+        }
+        return results;
+    }
+
+    // ==================== File access ====================
+
+    private WeatherApiClient.GeoResult place(int index) {
+        int offset = placesOffset + index * PLACE_SIZE;
+        String name = string(data.getInt(offset));
+        float lat = data.getFloat(offset + 4);
+        float lon = data.getFloat(offset + 8);
+        String country = new String(new char[] {(char) data.get(offset + 16), (char) data.get(offset + 17)}).trim();
+        return new WeatherApiClient.GeoResult(name, "", country, lat, lon);
+    }
+
+    private int keyOffset(int index) {
+        return stringsOffset + data.getInt(keysOffset + index * KEY_SIZE);
+    }
+
+    private String string(int relativeOffset) {
+        int offset = stringsOffset + relativeOffset;
+        int length = data.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * First key >= prefix
+     */
+    private int lowerBound(byte[] prefix) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keyOffset(mid), prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compare the stored string at offset with bytes (unsigned, like the generator)
+     */
+    private int compare(int offset, byte[] bytes) {
+        int length = data.getShort(offset) & 0xFFFF;
+        int common = Math.min(length, bytes.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (data.get(offset + 2 + i) & 0xFF) - (bytes[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    private boolean startsWith(int offset, byte[] prefix) {
+        int length = data.getShort(offset) & 0xFFFF;
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data.get(offset + 2 + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Search key: no diacritics, lower case, letters and digits only
+     * ("Hà Nội" -> "hanoi"). Must match GazetteerGenerator.fold().
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c == 'đ' || c == 'Đ') {
+                sb.append('d');
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * City name lookups (geo/1.0/direct) for both search screens
+ *
+ * Search results are kept per normalized query in memory and in the
+ * geocode_search table, for 30 days across restarts. A memory miss loads the
+ * query and its prefixes from the table with one indexed read; a network
+ * lookup is written there in one small transaction. A query can also be
+ * answered from a shorter one: if "han" returned fewer results than it asked
+ * for, that list is complete, and "hano" is answered by filtering it locally.
+ *
+ * resolve() (a name typed or submitted, turned into one place) keeps its
+ * answer in the geocode_cache table, so after the first time a name resolves
+ * with an indexed SQLite lookup, even once the search results have expired.
+ *
+ * search() and resolve() block - call them from a background thread.
+ */
+public class GeocodingService {
+
+    private static final String TAG = "GeocodingService";
+
+    private static final String LEGACY_FILE_NAME = "geocoding.bin"; // before geocode_search, migrated once
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    private static final int MAX_ENTRIES = 200;
+    private static final long TTL_MS = 30L * 24 * 60 * 60 * 1000; // place names hardly ever change
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_STORED_RESOLUTIONS = 500;
+    private static final int MAX_STORED_SEARCHES = 500;
+
+    private static volatile GeocodingService instance;
+
+    private final File legacyFile;
+    private final DatabaseHelper database; // null in tests
+    // normalized query -> results, least recently used first
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private boolean migrated;
+
+    // Stats
+    private long exactHits;
+    private long prefixHits;
+    private long networkLookups;
+    private long lookupNanos; // time spent answering from memory
+    private long storedHits;
+    private long storedLookups;
+    private long storedLookupNanos; // time spent in geocode_cache lookups
+    private long searchLoadHits;
+    private long searchLoads;
+    private long searchLoadNanos; // time spent in geocode_search lookups
+
+    public static GeocodingService getInstance(Context context) {
+        if (instance == null) {
+            synchronized (GeocodingService.class) {
+                if (instance == null) {
+                    QuotaGovernor.init(context);
+                    Context app = context.getApplicationContext();
+                    instance = new GeocodingService(new File(app.getCacheDir(), LEGACY_FILE_NAME),
+                            DatabaseHelper.getInstance(app));
+                }
+            }
+        }
+        return instance;
+    }
+
+    GeocodingService(File legacyFile, DatabaseHelper database) {
+        this.legacyFile = legacyFile;
+        this.database = database;
+    }
+
+    /**
+     * Places matching a query, best match first
+     * @param query City query, e.g. "Hanoi" or "Hanoi,VN"
+     * @param limit Max number of results
+     */
+    public List<WeatherApiClient.GeoResult> search(String query, int limit) throws IOException {
+        String key = normalize(query);
+        List<WeatherApiClient.GeoResult> cached = lookup(key, limit);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<WeatherApiClient.GeoResult> results = WeatherApiClient.requestGeocoding(query, limit);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            networkLookups++;
+            entries.put(key, new Entry(limit, now, results));
+        }
+        if (database != null) {
+            database.putGeocodeSearch(key, limit, now, results, now - TTL_MS, MAX_STORED_SEARCHES);
+        }
+        return results;
+    }
+
+    /**
+     * Best match for a query, or null if nothing was found
+     */
+    public WeatherApiClient.GeoResult resolve(String query) throws IOException {
+        String key = normalize(query);
+        List<WeatherApiClient.GeoResult> cached = lookup(key, 1);
+        if (cached != null) {
+            return cached.isEmpty() ? null : cached.get(0);
+        }
+        
+        WeatherApiClient.GeoResult stored = findStored(key);
+        if (stored != null) {
+            return stored;
+        }
+        
+        List<WeatherApiClient.GeoResult> results = search(query, 1);
+        if (results.isEmpty()) {
+            return null;
+        }
+        WeatherApiClient.GeoResult best = results.get(0);
+        if (database != null) {
+            long now = System.currentTimeMillis();
+            database.putGeocode(key, best, now, now - TTL_MS, MAX_STORED_RESOLUTIONS);
+        }
+        return best;
+    }
+    
+    /**
+     * Earlier resolution of a normalized query from geocode_cache, or null
+     */
+    private WeatherApiClient.GeoResult findStored(String key) {
+        if (database == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        WeatherApiClient.GeoResult stored = database.getGeocode(key, System.currentTimeMillis() - TTL_MS);
+        synchronized (this) {
+            storedLookups++;
+            storedLookupNanos += System.nanoTime() - start;
+            if (stored != null) {
+                storedHits++;
+                recordHit();
+            }
+        }
+        return stored;
+    }
+    
+    private static void recordHit() {
+        EndpointMetrics.forEndpoint(WeatherApiClient.ENDPOINT_GEOCODING)
+                .recordCache(EndpointMetrics.CacheOutcome.HIT);
+    }
+
+    /**
+     * Answer from memory, then from geocode_search, or null
+     */
+    private List<WeatherApiClient.GeoResult> lookup(String key, int limit) {
+        List<WeatherApiClient.GeoResult> cached = lookupInMemory(key, limit);
+        if (cached != null || !loadStored(key)) {
+            return cached;
+        }
+        cached = lookupInMemory(key, limit);
+        if (cached != null) {
+            synchronized (this) {
+                searchLoadHits++;
+            }
+        }
+        return cached;
+    }
+    
+    /**
+     * Copy the stored searches for a normalized query and its prefixes that
+     * memory lacks into memory
+     * @return true if any were found
+     */
+    private boolean loadStored(String key) {
+        if (database == null) {
+            return false;
+        }
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            // Same keys lookupInMemory() tries
+            int shortest = key.indexOf(',') >= 0 ? key.length() : MIN_PREFIX_LENGTH;
+            for (int length = key.length(); length == key.length() || length >= shortest; length--) {
+                Entry entry = entries.get(key.substring(0, length));
+                if (entry == null || !entry.isFresh()) {
+                    missing.add(key.substring(0, length));
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return false;
+        }
+        
+        long start = System.nanoTime();
+        Map<String, Entry> stored = database.getGeocodeSearches(missing, System.currentTimeMillis() - TTL_MS);
+        synchronized (this) {
+            searchLoads++;
+            searchLoadNanos += System.nanoTime() - start;
+            for (Map.Entry<String, Entry> search : stored.entrySet()) {
+                Entry current = entries.get(search.getKey());
+                if (current == null || current.resolvedAt < search.getValue().resolvedAt) {
+                    entries.put(search.getKey(), search.getValue());
+                }
+            }
+        }
+        return !stored.isEmpty();
+    }
+
+    /**
+     * Answer from memory (exact query, then a complete shorter prefix), or null
+     */
+    private synchronized List<WeatherApiClient.GeoResult> lookupInMemory(String key, int limit) {
+        long start = System.nanoTime();
+        migrateLegacyFile();
+        try {
+            Entry exact = entries.get(key);
+            if (exact != null && exact.isFresh() && (exact.limit >= limit || exact.isComplete())) {
+                exactHits++;
+                recordHit();
+                return first(exact.results, limit);
+            }
+
+            // "Hanoi,VN" style queries are not prefixes of a name
+            if (key.indexOf(',') >= 0) {
+                return null;
+            }
+            for (int length = key.length() - 1; length >= MIN_PREFIX_LENGTH; length--) {
+                Entry shorter = entries.get(key.substring(0, length));
+                if (shorter == null || !shorter.isFresh() || !shorter.isComplete()) {
+                    continue;
+                }
+                List<WeatherApiClient.GeoResult> filtered = new ArrayList<>();
+                for (WeatherApiClient.GeoResult result : shorter.results) {
+                    if (normalize(result.name).startsWith(key)) {
+                        filtered.add(result);
+                    }
+                }
+                // An empty list may just mean the server matches differently - ask it
+                if (!filtered.isEmpty()) {
+                    prefixHits++;
+                    recordHit();
+                    return first(filtered, limit);
+                }
+            }
+            return null;
+        } finally {
+            lookupNanos += System.nanoTime() - start;
+        }
+    }
+
+    public String dumpStats() {
+        long stored = database != null ? database.getGeocodeCount() : 0;
+        long storedSearches = database != null ? database.getGeocodeSearchCount() : 0;
+        synchronized (this) {
+            long lookups = exactHits + prefixHits + networkLookups;
+            return String.format(Locale.US,
+                    "Entries: %d\n%d exact hits, %d prefix hits, %d network lookups\nAvg local lookup: %.3f ms\n"
+                            + "Stored searches: %d (%d / %d hits, avg %.3f ms)\n"
+                            + "Stored resolutions: %d (%d / %d hits, avg %.3f ms)\n",
+                    entries.size(), exactHits, prefixHits, networkLookups,
+                    lookups == 0 ? 0.0 : lookupNanos / 1e6 / lookups,
+                    storedSearches, searchLoadHits, searchLoads,
+                    searchLoads == 0 ? 0.0 : searchLoadNanos / 1e6 / searchLoads,
+                    stored, storedHits, storedLookups,
+                    storedLookups == 0 ? 0.0 : storedLookupNanos / 1e6 / storedLookups);
+        }
+    }
+
+    // ==================== Migration ====================
+
+    /**
+     * Move the fresh searches of the old geocoding.bin file into
+     * geocode_search and delete the file.
+     * Runs once, on the first lookup, off the main thread.
+     */
+    private void migrateLegacyFile() {
+        if (migrated) {
+            return;
+        }
+        migrated = true;
+        if (database == null || !legacyFile.exists()) {
+            return;
+        }
+        long minResolvedAt = System.currentTimeMillis() - TTL_MS;
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(legacyFile)))) {
+            if (in.readInt() == LEGACY_FORMAT_VERSION) {
+                int entryCount = in.readInt();
+                for (int i = 0; i < entryCount; i++) {
+                    String key = in.readUTF();
+                    int limit = in.readInt();
+                    long resolvedAt = in.readLong();
+                    int size = in.readInt();
+                    List<WeatherApiClient.GeoResult> results = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        results.add(new WeatherApiClient.GeoResult(in.readUTF(),
+                                in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble()));
+                    }
+                    if (resolvedAt >= minResolvedAt) {
+                        database.putGeocodeSearch(key, limit, resolvedAt, results, minResolvedAt, MAX_STORED_SEARCHES);
+                        count++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring unreadable " + LEGACY_FILE_NAME + ": " + e.getMessage());
+        }
+        Log.i(TAG, "Migrated " + count + " searches from " + LEGACY_FILE_NAME);
+        legacyFile.delete();
+        new File(legacyFile.getPath() + ".tmp").delete();
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * "  Ho  Chi Minh " -> "ho chi minh"
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<WeatherApiClient.GeoResult> first(List<WeatherApiClient.GeoResult> results, int limit) {
+        return results.size() <= limit ? results : Collections.unmodifiableList(results.subList(0, limit));
+    }
+
+    /**
+     * Results of one query, as kept in memory and in geocode_search
+     */
+    static final class Entry {
+        final int limit; // limit the server was asked for
+        final long resolvedAt; // wall clock, ms
+        final List<WeatherApiClient.GeoResult> results;
+
+        Entry(int limit, long resolvedAt, List<WeatherApiClient.GeoResult> results) {
+            this.limit = limit;
+            this.resolvedAt = resolvedAt;
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        /**
+         * Fewer results than asked for - the server had nothing more
+         */
+        boolean isComplete() {
+            return results.size() < limit;
+        }
+
+        boolean isFresh() {
+            long age = System.currentTimeMillis() - resolvedAt;
+            return age >= 0 && age < TTL_MS;
+        }
+    }
+}
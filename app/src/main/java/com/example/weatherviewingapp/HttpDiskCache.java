@@ -0,0 +1,306 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded on-disk cache of API response bodies (context.getCacheDir()/http)
+ *
+ * - One file per request key: small header (stored time, ETag, Last-Modified)
+ *   followed by the decompressed body
+ * - Freshness depends on the endpoint (see Policy)
+ * - LRU eviction once the total size goes over MAX_BYTES
+ * - Survives restarts, so a city opened before is shown without network
+ *
+ * Entries are read and written on the network threads, never on the main thread.
+ */
+public class HttpDiskCache {
+
+    private static final String TAG = "HttpDiskCache";
+
+    private static final String DIR_NAME = "http";
+    private static final int FORMAT_VERSION = 1;
+    private static final long MAX_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * How long a response may be served without asking the server
+     */
+    public enum Policy {
+        WEATHER(10 * 60 * 1000L), // current weather changes every ~10 minutes
+        FORECAST(3 * 60 * 60 * 1000L); // 3-hour slots
+
+        public final long ttlMillis;
+
+        Policy(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+        }
+    }
+
+    /**
+     * A cached response
+     */
+    public static class Entry {
+        public final long storedAt; // wall clock, ms
+        public final String etag; // may be null
+        public final String lastModified; // may be null
+        public final byte[] body;
+
+        Entry(long storedAt, String etag, String lastModified, byte[] body) {
+            this.storedAt = storedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        public boolean isFresh(Policy policy) {
+            long age = System.currentTimeMillis() - storedAt;
+            return age >= 0 && age < policy.ttlMillis;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private static volatile HttpDiskCache instance;
+
+    private final File directory;
+    // file name -> size, least recently used first
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(32, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    // Stats
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long writes;
+    private long evictions;
+
+    /**
+     * Create the cache (safe to call more than once)
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (HttpDiskCache.class) {
+                if (instance == null) {
+                    instance = new HttpDiskCache(new File(context.getApplicationContext().getCacheDir(), DIR_NAME));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the cache, or null if init() was not called yet
+     */
+    public static HttpDiskCache getInstance() {
+        return instance;
+    }
+
+    HttpDiskCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Cached response for a key (fresh or not), or null
+     */
+    public synchronized Entry get(String key, Policy policy) {
+        ensureLoaded();
+        String name = fileName(key);
+        if (!index.containsKey(name)) {
+            misses++;
+            return null;
+        }
+        try {
+            Entry entry = read(new File(directory, name), key);
+            if (entry.isFresh(policy)) {
+                hits++;
+            } else {
+                staleHits++;
+            }
+            return entry;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable entry for " + key + ": " + e.getMessage());
+            remove(name);
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Store a response body
+     */
+    public synchronized void put(String key, byte[] body, String etag, String lastModified) {
+        ensureLoaded();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        String name = fileName(key);
+        File file = new File(directory, name);
+        File tmp = new File(directory, name + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeUTF(key);
+            out.writeUTF(etag != null ? etag : "");
+            out.writeUTF(lastModified != null ? lastModified : "");
+            out.write(body);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write entry for " + key + ": " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+
+        Long previous = index.put(name, file.length());
+        totalBytes += file.length() - (previous != null ? previous : 0);
+        writes++;
+        trimToSize();
+    }
+
+    /**
+     * Mark an entry as fresh again (server answered 304 Not Modified)
+     */
+    public synchronized void touch(String key) {
+        ensureLoaded();
+        String name = fileName(key);
+        if (!index.containsKey(name)) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, name), "rw")) {
+            file.seek(4); // after FORMAT_VERSION
+            file.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            remove(name);
+        }
+    }
+
+    public synchronized String dumpStats() {
+        return String.format(Locale.US,
+                "Disk cache: %d entries, %d KB / %d KB\n%d fresh hits, %d stale, %d misses, %d writes, %d evicted\n",
+                index.size(), totalBytes / 1024, MAX_BYTES / 1024,
+                hits, staleHits, misses, writes, evictions);
+    }
+
+    // ==================== Internals ====================
+
+    /**
+     * Build the LRU index from the files on disk (oldest first), once
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete();
+                continue;
+            }
+            index.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        trimToSize();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        List<String> evicted = new ArrayList<>();
+        while (totalBytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+            it.remove();
+        }
+        for (String name : evicted) {
+            new File(directory, name).delete();
+            evictions++;
+        }
+    }
+
+    private void remove(String name) {
+        Long size = index.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    private static Entry read(File file, String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format");
+            }
+            long storedAt = in.readLong();
+            if (!key.equals(in.readUTF())) {
+                throw new IOException("Key mismatch");
+            }
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = BufferPool.acquireBytes();
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            } finally {
+                BufferPool.release(buffer);
+            }
+            return new Entry(storedAt, etag.isEmpty() ? null : etag,
+                    lastModified.isEmpty() ? null : lastModified, body.toByteArray());
+        }
+    }
+
+    /**
+     * File name for a request key (hex SHA-1, so any key is a valid name)
+     */
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format(Locale.US, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode()); // SHA-1 is always available
+        }
+    }
+}
@@ -0,0 +1,589 @@
+package com.example.weatherviewingapp;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Shared HTTPS transport for every OpenWeatherMap endpoint
+ * (weather, forecast, geo/1.0/direct)
+ *
+ * - HTTPS only, so all endpoints can share the same pooled connection
+ * - Keep-alive: responses are read to the end and the stream is closed
+ *   (never disconnect()), so HttpURLConnection returns the socket to its pool
+ * - One shared SSLSocketFactory with a client session cache, so new
+ *   connections resume TLS sessions instead of doing a full handshake
+ * - Asks for gzip and decompresses as a stream; bodies are read through
+ *   pooled buffers (BufferPool) instead of one String per line
+ * - Times connect (DNS + TCP + TLS), time to first byte and the whole
+ *   request per endpoint (EndpointMetrics)
+ * - Plain http:// is refused, except to a loopback address (a local stub
+ *   server in tests and benchmarks)
+ */
+public class HttpTransport implements Transport {
+
+    private static final String TAG = "HttpTransport";
+
+    public static final String API_HOST = "api.openweathermap.org";
+
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final int TLS_SESSION_TIMEOUT_S = 24 * 60 * 60;
+
+    private static volatile HttpTransport instance;
+
+    private final CountingSocketFactory socketFactory;
+
+    // Stats
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong warmUpCount = new AtomicLong();
+    private final AtomicLong abortedCount = new AtomicLong();
+    private final Map<String, ByteStats> endpointBytes = new ConcurrentHashMap<>();
+
+    public static HttpTransport getInstance() {
+        if (instance == null) {
+            synchronized (HttpTransport.class) {
+                if (instance == null) {
+                    instance = new HttpTransport();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private HttpTransport() {
+        // Make sure the platform keeps idle connections around
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+
+        SSLSocketFactory delegate;
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            context.getClientSessionContext().setSessionTimeout(TLS_SESSION_TIMEOUT_S);
+            delegate = context.getSocketFactory();
+        } catch (Exception e) {
+            Log.e(TAG, "Falling back to default SSLSocketFactory", e);
+            delegate = HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+        socketFactory = new CountingSocketFactory(delegate);
+    }
+
+    /**
+     * Perform a GET request. The caller must close the Response
+     * (try-with-resources) so the connection can be reused.
+     *
+     * @param urlString Full https:// URL
+     */
+    @Override
+    public Response get(String urlString) throws IOException {
+        return get(urlString, null);
+    }
+
+    /**
+     * Perform a GET request with extra request headers
+     * (e.g. If-None-Match for revalidation)
+     *
+     * @param urlString Full https:// URL (http:// only to a loopback address)
+     * @param headers Extra headers, may be null
+     */
+    @Override
+    public Response get(String urlString, Map<String, String> headers) throws IOException {
+        URL url = new URL(urlString);
+        boolean https = "https".equals(url.getProtocol());
+        if (!https && !("http".equals(url.getProtocol()) && isLoopback(url.getHost()))) {
+            throw new IOException("Only HTTPS is allowed: " + url.getProtocol() + "://" + url.getHost());
+        }
+        QuotaGovernor governor = QuotaGovernor.getInstance();
+        if (governor != null) {
+            // May wait for a token, or throw instead of sending a request that would get a 429
+            governor.acquire(urlString);
+        }
+        EndpointMetrics metrics = EndpointMetrics.forPath(url.getPath());
+        long start = System.nanoTime();
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (https) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
+        }
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Connection", "keep-alive");
+        // Setting this ourselves turns off transparent gzip, so we see the real
+        // wire size and decompress the stream in Response.getBody()
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+
+        requestCount.incrementAndGet();
+        // Cancelling the task must unblock connect / read, which an interrupt doesn't
+        NetworkExecutor.setCancelAction(() -> {
+            abortedCount.incrementAndGet();
+            connection.disconnect();
+        });
+        try {
+            long connectStart = System.nanoTime();
+            connection.connect(); // new TCP + TLS connection, or one from the pool
+            metrics.connect.record(EndpointMetrics.micros(connectStart));
+
+            long requestStart = System.nanoTime();
+            int code = connection.getResponseCode();
+            metrics.ttfb.record(EndpointMetrics.micros(requestStart));
+            metrics.recordStatus(code);
+            return new Response(connection, code, statsFor(url.getPath()), metrics, start);
+        } catch (IOException e) {
+            // Broken connection - don't put it back in the pool
+            NetworkExecutor.setCancelAction(null);
+            if (!Thread.currentThread().isInterrupted()) {
+                metrics.recordFailure(); // not when we aborted it ourselves
+            }
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Resolve the API host and open a TLS connection ahead of the first request,
+     * leaving it in the pool. Call from a background thread.
+     *
+     * Sends a HEAD (no body to download) and is not an API call: it takes no
+     * QuotaGovernor token and is kept out of EndpointMetrics.
+     *
+     * @param baseUrl e.g. "https://" + API_HOST
+     */
+    @Override
+    public void warmUp(String baseUrl) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(baseUrl + "/");
+            boolean https = "https".equals(url.getProtocol());
+            if (!https && !("http".equals(url.getProtocol()) && isLoopback(url.getHost()))) {
+                return;
+            }
+            // Warms the system resolver cache too; fails fast when offline
+            InetAddress.getAllByName(url.getHost());
+            connection = (HttpURLConnection) url.openConnection();
+            if (https) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
+            }
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Connection", "keep-alive");
+            warmUpCount.incrementAndGet();
+            int code = connection.getResponseCode();
+            // Closing the (empty) body stream puts the connection in the pool
+            InputStream body = code >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                body.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Warm-up failed: " + e.getMessage());
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * localhost, 127.x.x.x or ::1 - never leaves the device
+     */
+    static boolean isLoopback(String host) {
+        if ("localhost".equalsIgnoreCase(host)) {
+            return true;
+        }
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        // Only literal addresses - a name could resolve anywhere
+        return host.startsWith("127.") && host.matches("[0-9.]+") || "::1".equals(host)
+                || "0:0:0:0:0:0:0:1".equals(host);
+    }
+
+    // ==================== Stats ====================
+
+    /**
+     * Byte counters for an endpoint, keyed by the last path segment
+     * ("weather", "forecast", "direct")
+     */
+    private ByteStats statsFor(String path) {
+        String endpoint = path.substring(path.lastIndexOf('/') + 1);
+        if (endpoint.isEmpty()) {
+            endpoint = "/";
+        }
+        ByteStats stats = endpointBytes.get(endpoint);
+        if (stats == null) {
+            endpointBytes.putIfAbsent(endpoint, new ByteStats());
+            stats = endpointBytes.get(endpoint);
+        }
+        return stats;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * New TCP+TLS connections opened
+     */
+    public long getConnectionCount() {
+        return socketFactory.socketsCreated.get();
+    }
+
+    /**
+     * Requests (and warm-ups) that went out on an already open (pooled) connection
+     */
+    public long getReusedConnectionCount() {
+        return Math.max(0, requestCount.get() + warmUpCount.get() - socketFactory.socketsCreated.get());
+    }
+
+    public long getTlsResumedCount() {
+        return socketFactory.tlsResumed.get();
+    }
+
+    public long getTlsFullHandshakeCount() {
+        return socketFactory.tlsFull.get();
+    }
+
+    @Override
+    public String dumpStats() {
+        return String.format(Locale.US,
+                "Requests: %d (%d aborted by cancellation), %d warm-ups\nConnections opened: %d (reused %d)\n" +
+                "TLS handshakes: %d full / %d resumed\n",
+                requestCount.get(), abortedCount.get(), warmUpCount.get(),
+                getConnectionCount(), getReusedConnectionCount(),
+                getTlsFullHandshakeCount(), getTlsResumedCount())
+                + dumpByteStats();
+    }
+
+    /**
+     * Bytes received on the wire so far, all endpoints
+     */
+    public long getTotalWireBytes() {
+        long total = 0;
+        for (ByteStats stats : endpointBytes.values()) {
+            total += stats.wireBytes.get();
+        }
+        return total;
+    }
+
+    /**
+     * Compressed (wire) vs decompressed bytes per endpoint
+     */
+    public String dumpByteStats() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, ByteStats> entry : endpointBytes.entrySet()) {
+            ByteStats stats = entry.getValue();
+            long wire = stats.wireBytes.get();
+            long decoded = stats.decodedBytes.get();
+            sb.append(String.format(Locale.US, "%-9s %d responses, %d B wire / %d B decoded (%.0f%%)\n",
+                    entry.getKey(), stats.responses.get(), wire, decoded,
+                    decoded == 0 ? 100.0 : 100.0 * wire / decoded));
+        }
+        return sb.toString();
+    }
+
+    // ==================== Response ====================
+
+    /**
+     * HTTP response. Closing it closes the body stream, which hands the
+     * connection back to the keep-alive pool.
+     */
+    public static class Response implements Transport.Response {
+        private final HttpURLConnection connection;
+        private final int code;
+        private final ByteStats stats;
+        private final EndpointMetrics metrics;
+        private final long startNanos; // System.nanoTime() when the request started
+        private CountingInputStream wire;
+        private CountingInputStream body;
+        private boolean complete;
+        private boolean closed;
+
+        Response(HttpURLConnection connection, int code, ByteStats stats,
+                 EndpointMetrics metrics, long startNanos) {
+            this.connection = connection;
+            this.code = code;
+            this.stats = stats;
+            this.metrics = metrics;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public int getCode() {
+            return code;
+        }
+
+        public boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        /**
+         * Decompressed response body (error body for non-2xx codes, may be empty)
+         */
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream raw = isSuccessful() ? connection.getInputStream() : connection.getErrorStream();
+                if (raw == null) {
+                    raw = new ByteArrayInputStream(new byte[0]);
+                }
+                wire = new CountingInputStream(raw);
+
+                InputStream decoded = wire;
+                if ("gzip".equalsIgnoreCase(getHeader("Content-Encoding"))) {
+                    try {
+                        decoded = new GZIPInputStream(wire, BufferPool.BUFFER_SIZE / 2);
+                    } catch (EOFException e) {
+                        // Empty body (e.g. 304) - nothing to decompress
+                        decoded = new ByteArrayInputStream(new byte[0]);
+                    }
+                }
+                body = decoded == wire ? wire : new CountingInputStream(decoded);
+            }
+            return body;
+        }
+
+        /**
+         * Read the whole (decompressed) body, e.g. to decode it and also cache it
+         */
+        @Override
+        public byte[] readBytes() throws IOException {
+            InputStream in = getBody();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(BufferPool.BUFFER_SIZE);
+            byte[] buffer = BufferPool.acquireBytes();
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                bodyRead();
+                return out.toByteArray();
+            } finally {
+                BufferPool.release(buffer);
+            }
+        }
+
+        /**
+         * Read the whole body as a String
+         */
+        @Override
+        public String readString() throws IOException {
+            PooledReader reader = new PooledReader(getBody());
+            char[] buffer = BufferPool.acquireChars();
+            try {
+                StringBuilder response = new StringBuilder();
+                int read;
+                while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                    response.append(buffer, 0, read);
+                }
+                bodyRead();
+                return response.toString();
+            } finally {
+                BufferPool.release(buffer);
+                reader.close();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            NetworkExecutor.setCancelAction(null);
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelled - don't download the rest just to keep the socket,
+                // and keep the partial request out of the latency numbers
+                connection.disconnect();
+                return;
+            }
+            byte[] skip = BufferPool.acquireBytes();
+            try {
+                // Drain what's left so the socket can be reused
+                InputStream in = getBody();
+                while (in.read(skip) != -1) {
+                    // discard
+                }
+                in.close();
+            } catch (IOException e) {
+                connection.disconnect();
+            } finally {
+                BufferPool.release(skip);
+                bodyRead();
+                if (body != null) {
+                    stats.record(wire.count, body.count);
+                    metrics.bytes.record(wire.count);
+                }
+            }
+        }
+
+        /**
+         * Whole body is in - record the total time (once; a streamed body ends at close())
+         */
+        private void bodyRead() {
+            if (!complete) {
+                complete = true;
+                metrics.total.record(EndpointMetrics.micros(startNanos));
+            }
+        }
+    }
+
+    // ==================== Internals ====================
+
+    /**
+     * Byte counters for one endpoint
+     */
+    private static class ByteStats {
+        final AtomicLong responses = new AtomicLong();
+        final AtomicLong wireBytes = new AtomicLong();
+        final AtomicLong decodedBytes = new AtomicLong();
+
+        void record(long wire, long decoded) {
+            responses.incrementAndGet();
+            wireBytes.addAndGet(wire);
+            decodedBytes.addAndGet(decoded);
+        }
+    }
+
+    /**
+     * Counts bytes read through it
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * SSLSocketFactory wrapper that counts new connections and whether their
+     * TLS handshake resumed a cached session.
+     * Must be a single shared instance - the connection pool is keyed on it.
+     */
+    private static class CountingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+        final AtomicLong socketsCreated = new AtomicLong();
+        final AtomicLong tlsResumed = new AtomicLong();
+        final AtomicLong tlsFull = new AtomicLong();
+
+        CountingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket track(Socket socket) {
+            socketsCreated.incrementAndGet();
+            if (socket instanceof SSLSocket) {
+                final long createdAt = System.currentTimeMillis();
+                HandshakeCompletedListener listener = event -> {
+                    SSLSession session = event.getSession();
+                    // A resumed session was created before this socket existed
+                    if (session.getCreationTime() < createdAt) {
+                        tlsResumed.incrementAndGet();
+                    } else {
+                        tlsFull.incrementAndGet();
+                    }
+                };
+                ((SSLSocket) socket).addHandshakeCompletedListener(listener);
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return track(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return track(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return track(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return track(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return track(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
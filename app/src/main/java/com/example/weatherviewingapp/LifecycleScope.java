@@ -0,0 +1,115 @@
+package com.example.weatherviewingapp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Work started by one screen, cancelled together when the screen goes away
+ *
+ * Activities pass every Future they get from WeatherApiClient /
+ * NetworkExecutor through track(). cancelAll() (from onStop() when finishing
+ * or rotating, and from onDestroy()) cancels whatever is still queued or
+ * running: the task is interrupted, its open connection is disconnected (see
+ * NetworkExecutor.setCancelAction()), a body not parsed yet is skipped, and
+ * the callback - which holds the Activity - is dropped without being called.
+ *
+ * Main thread only.
+ */
+public class LifecycleScope {
+
+    private static final Map<String, long[]> cancelledByOwner = new LinkedHashMap<>(); // owner -> {closes, tasks}
+
+    private final String owner;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * @param owner Name shown on the debug screen, e.g. "MainActivity"
+     */
+    public LifecycleScope(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Cancel the future with this scope. A future tracked after
+     * cancelAll() is cancelled at once.
+     *
+     * @return the same future, so calls can be wrapped in place
+     */
+    public <F extends Future<?>> F track(F future) {
+        if (future == null) {
+            return null;
+        }
+        if (closed) {
+            if (future.cancel(true)) {
+                count(0, 1);
+            }
+            return future;
+        }
+        // Forget finished work so a long-lived screen doesn't collect futures
+        Iterator<Future<?>> it = futures.iterator();
+        while (it.hasNext()) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+        futures.add(future);
+        return future;
+    }
+
+    /**
+     * Cancel everything still in flight and stop accepting work
+     * (safe to call more than once)
+     */
+    public void cancelAll() {
+        int cancelled = 0;
+        for (Future<?> future : futures) {
+            if (future.cancel(true)) {
+                cancelled++;
+            }
+        }
+        futures.clear();
+        count(closed ? 0 : 1, cancelled);
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void count(int closes, int tasks) {
+        synchronized (cancelledByOwner) {
+            long[] counts = cancelledByOwner.get(owner);
+            if (counts == null) {
+                counts = new long[2];
+                cancelledByOwner.put(owner, counts);
+            }
+            counts[0] += closes;
+            counts[1] += tasks;
+        }
+    }
+
+    // ==================== Stats ====================
+
+    /**
+     * Work cancelled per screen, for the debug screen
+     */
+    public static String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (cancelledByOwner) {
+            for (Map.Entry<String, long[]> item : cancelledByOwner.entrySet()) {
+                sb.append(String.format(Locale.US, "%s: closed %d times, %d tasks cancelled\n",
+                        item.getKey(), item.getValue()[0], item.getValue()[1]));
+            }
+        }
+        if (sb.length() == 0) {
+            sb.append("Nothing cancelled yet\n");
+        }
+        return sb.toString();
+    }
+}
@@ -14,6 +14,7 @@ public class Location {
     private boolean isDefault; // Default location to show on startup
     private int sortOrder; // For custom ordering
     private long lastUpdated; // Timestamp of last weather fetch
+    private long cityId; // OpenWeatherMap city id, 0 if not known yet
     
     public Location() {
     }
@@ -102,6 +103,14 @@ public class Location {
         this.lastUpdated = lastUpdated;
     }
     
+    public long getCityId() {
+        return cityId;
+    }
+    
+    public void setCityId(long cityId) {
+        this.cityId = cityId;
+    }
+    
     /**
      * Get display name with tag if exists
      */
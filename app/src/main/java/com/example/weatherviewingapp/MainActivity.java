@@ -8,9 +8,9 @@ import android.content.Intent;
 import android.graphics.drawable.Drawable;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
@@ -35,20 +35,14 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Main Activity - Enhanced Weather Display Screen
@@ -60,6 +54,9 @@ import java.util.Locale;
  * - Last update timestamp
  * - Fade-in animations
  * - Network connectivity check
+ * - Stale-while-revalidate: the last cached weather + forecast render at once
+ *   with a staleness badge while the refresh runs; the skeleton only shows
+ *   when nothing is cached
  */
 public class MainActivity extends AppCompatActivity {
     
@@ -70,6 +67,7 @@ public class MainActivity extends AppCompatActivity {
     private TextView tvTemperature;
     private TextView tvCondition;
     private TextView tvLastUpdated;
+    private TextView tvStaleBadge;
     private Button btnRefresh;
     private SwipeRefreshLayout swipeRefreshLayout;
     private ConstraintLayout mainLayout;
@@ -91,35 +89,58 @@ public class MainActivity extends AppCompatActivity {
     private Button btnRetry;
     
     private SettingsManager settingsManager;
+    private DatabaseHelper dbHelper;
     private WeatherApiClient weatherApiClient;
+    private CityAutocomplete cityAutocomplete;
     
     private String currentCity;
-    private double currentLat = 0;
+    private double currentLat = 0; // 0, 0 = not known, load by name
     private double currentLon = 0;
     private boolean isLoading = false;
     
-    private static final String API_KEY = "c087fa97752f540e360b43023b2d945a";
+    // Stale-while-revalidate: what is on screen right now
+    private WeatherApiClient.WeatherData shownWeather; // null while nothing full is shown
+    private List<WeatherApiClient.ForecastDay> shownForecast;
+    private int shownGradientResId;
+    private long shownSavedAt; // when the shown weather was fetched
+    private boolean showingCachedSummary = false; // the summary saved in SettingsManager
+    private String shownUnit; // temperature unit of what is on screen (null = nothing rendered yet)
+    private Future<WeatherApiClient.Snapshot> snapshotLoad;
+    private Future<StartupOrchestrator.LaunchData> cityLoad;
+    
+    // Every request started here - cancelled when the screen goes away
+    private final LifecycleScope lifecycleScope = new LifecycleScope("MainActivity");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        StartupOrchestrator.reportFirstFrame(getWindow().getDecorView());
         
-        // Initialize helpers
+        // Initialize helpers (prefs and database were warmed up by StartupOrchestrator)
         settingsManager = new SettingsManager(this);
-        weatherApiClient = new WeatherApiClient();
+        dbHelper = DatabaseHelper.getInstance(this);
+        weatherApiClient = new WeatherApiClient(this);
+        cityAutocomplete = new CityAutocomplete(this, new CityAutocomplete.Listener() {
+            @Override
+            public void onLoading(boolean loading) {
+            }
+            
+            @Override
+            public void onSuggestions(String query, List<String> suggestions) {
+                showCitySuggestions(suggestions);
+            }
+        });
         
         // Initialize views
         initViews();
         
-        // Load cached data first (for offline viewing)
-        loadCachedData();
-        
         // Get default city from SharedPreferences
         currentCity = settingsManager.getDefaultCity();
         
-        // Fetch fresh weather data
-        fetchWeatherData();
+        // Show the last known data first (for offline viewing and fast startup),
+        // then fetch fresh weather data
+        openCurrentCity();
         
         // Setup listeners
         setupListeners();
@@ -138,6 +159,7 @@ public class MainActivity extends AppCompatActivity {
         tvTemperature = findViewById(R.id.tvTemperature);
         tvCondition = findViewById(R.id.tvCondition);
         tvLastUpdated = findViewById(R.id.tvLastUpdated);
+        tvStaleBadge = findViewById(R.id.tvStaleBadge);
         btnRefresh = findViewById(R.id.btnRefresh);
         
         // Weather details views
@@ -193,8 +215,8 @@ public class MainActivity extends AppCompatActivity {
             
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (s.length() >= 2) {
-                    searchCities(s.toString());
+                if (!etSearchCity.isPerformingCompletion()) {
+                    cityAutocomplete.onTextChanged(s);
                 }
             }
             
@@ -204,9 +226,16 @@ public class MainActivity extends AppCompatActivity {
         
         etSearchCity.setOnItemClickListener((parent, view, position, id) -> {
             String selectedCity = (String) parent.getItemAtPosition(position);
+            WeatherApiClient.GeoResult place = cityAutocomplete.findSuggestion(selectedCity);
             etSearchCity.setText(""); // Clear search box
             etSearchCity.dismissDropDown(); // Dismiss dropdown
-            fetchWeatherForCity(selectedCity);
+            if (place != null) {
+                // Coordinates are already known - skip the geocoding lookup
+                showSkeletonLoading();
+                onCityCoordinatesLoaded(new Location(place.name, place.country, place.lat, place.lon));
+            } else {
+                fetchWeatherForCity(selectedCity);
+            }
             hideKeyboard();
         });
         
@@ -244,16 +273,86 @@ public class MainActivity extends AppCompatActivity {
     
     /**
      * Load cached weather data (for offline viewing)
+     * The saved summary (city, temperature, condition) shows at once; the full
+     * weather + forecast is then read from the HTTP cache off the main thread
+     * and replaces it, with a staleness badge if it is past its TTL.
      */
     private void loadCachedData() {
-        if (settingsManager.hasCachedData()) {
-            String cachedCity = settingsManager.getCachedCity();
-            String cachedTemp = settingsManager.getCachedTemperature();
-            String cachedCondition = settingsManager.getCachedCondition();
+        if (shownWeather != null) {
+            return; // Full data already on screen
+        }
+        showSavedSummary();
+        
+        if (snapshotLoad != null) {
+            snapshotLoad.cancel(false);
+        }
+        final String city = currentCity;
+        WeatherApiClient.SnapshotCallback onSnapshot = snapshot -> {
+            snapshotLoad = null;
+            if (city.equals(currentCity)) {
+                showSnapshot(snapshot);
+            }
+        };
+        snapshotLoad = lifecycleScope.track(hasCoordinates()
+                ? weatherApiClient.fetchCachedSnapshot(currentLat, currentLon, onSnapshot)
+                : weatherApiClient.fetchCachedSnapshot(city, onSnapshot));
+    }
+    
+    /**
+     * Show the current city: its saved summary at once, then - read off the
+     * main thread, by StartupOrchestrator for the launch city - its saved place
+     * and cached snapshot; once those are on screen, fetch fresh weather data
+     */
+    private void openCurrentCity() {
+        // Until the saved place is known the city is loaded by name
+        currentLat = 0;
+        currentLon = 0;
+        showSavedSummary();
+        if (!hasContentOnScreen()) {
+            showSkeletonLoading();
+        }
+        
+        if (snapshotLoad != null) {
+            snapshotLoad.cancel(false);
+            snapshotLoad = null;
+        }
+        if (cityLoad != null) {
+            cityLoad.cancel(false);
+        }
+        final String city = currentCity;
+        cityLoad = lifecycleScope.track(NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new OpenCityTask(dbHelper, city), new NetworkExecutor.Callback<StartupOrchestrator.LaunchData>() {
+            @Override
+            public void onSuccess(StartupOrchestrator.LaunchData data) {
+                cityLoad = null;
+                if (!city.equals(currentCity)) {
+                    return; // Another city was opened meanwhile
+                }
+                // A saved location loads by its saved coordinates (same point and cache keys everywhere)
+                if (data.place != null) {
+                    currentLat = data.place.getLatitude();
+                    currentLon = data.place.getLongitude();
+                }
+                showSnapshot(data.snapshot);
+                fetchWeatherData();
+            }
             
-            tvCityName.setText(cachedCity);
-            tvTemperature.setText(cachedTemp);
-            tvCondition.setText(cachedCondition);
+            @Override
+            public void onError(Exception error) {
+                cityLoad = null;
+                if (city.equals(currentCity)) {
+                    fetchWeatherData();
+                }
+            }
+        }));
+    }
+    
+    /**
+     * Show the summary saved in SettingsManager if it is for the current city
+     */
+    private void showSavedSummary() {
+        if (settingsManager.hasCachedData() && settingsManager.getCachedCity().equals(currentCity)) {
+            showCachedSummary();
             
             // Show last update time if available
             long lastUpdate = settingsManager.getLastUpdateTime();
@@ -263,6 +362,101 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
+    /**
+     * Render the current city's cached weather + forecast, with a staleness
+     * badge if it is past its TTL. Render only: the refresh callbacks own the
+     * loading state and the saved summary.
+     */
+    private void showSnapshot(WeatherApiClient.Snapshot snapshot) {
+        if (shownWeather != null || snapshot == null || snapshot.weather == null) {
+            // Fresh data won the race, or nothing cached
+            return;
+        }
+        renderWeather(snapshot.weather);
+        
+        if (snapshot.forecast != null) {
+            displayForecast(snapshot.forecast);
+        }
+        shownSavedAt = snapshot.savedAt;
+        if (shownSavedAt > 0) {
+            updateLastUpdatedTime(shownSavedAt);
+        }
+        if (!snapshot.fresh) {
+            showStaleBadge(shownSavedAt, isLoading);
+        }
+    }
+    
+    /**
+     * Show the summary saved by SettingsManager (city, temperature, condition)
+     */
+    private void showCachedSummary() {
+        TemperatureFormat format = TemperatureFormat.from(settingsManager);
+        double cachedTemp = settingsManager.getCachedTemperature();
+        
+        tvCityName.setText(settingsManager.getCachedCity());
+        tvTemperature.setText(Double.isNaN(cachedTemp) ? "--" : format.withUnit(cachedTemp));
+        tvCondition.setText(settingsManager.getCachedCondition());
+        showingCachedSummary = true;
+        shownUnit = settingsManager.getTemperatureUnit();
+    }
+    
+    /**
+     * Render what is on screen again in the current temperature unit (no request)
+     */
+    private void renderInCurrentUnit() {
+        if (shownWeather != null) {
+            renderWeather(shownWeather);
+        } else if (showingCachedSummary) {
+            showCachedSummary();
+        }
+        
+        if (shownForecast != null) {
+            List<WeatherApiClient.ForecastDay> forecast = shownForecast;
+            shownForecast = null; // displayForecast() skips the list it already shows
+            displayForecast(forecast);
+        }
+    }
+    
+    /**
+     * Whether the current city is loaded by coordinates
+     */
+    private boolean hasCoordinates() {
+        return currentLat != 0 || currentLon != 0;
+    }
+    
+    /**
+     * Anything (full data or the saved summary) on screen that a refresh may keep showing
+     */
+    private boolean hasContentOnScreen() {
+        return shownWeather != null || showingCachedSummary;
+    }
+    
+    /**
+     * Badge telling that the weather shown is old
+     * @param savedAt When it was fetched (0 if unknown)
+     * @param refreshing Whether a refresh is still running
+     */
+    private void showStaleBadge(long savedAt, boolean refreshing) {
+        String time = savedAt > 0
+                ? new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date(savedAt))
+                : "--:--";
+        tvStaleBadge.setText(getString(refreshing ? R.string.stale_badge_refreshing : R.string.stale_badge, time));
+        tvStaleBadge.setVisibility(View.VISIBLE);
+    }
+    
+    private void hideStaleBadge() {
+        tvStaleBadge.setVisibility(View.GONE);
+    }
+    
+    /**
+     * Refresh failed while older data is on screen - keep it and say so
+     */
+    private void keepStaleContent() {
+        hideSkeletonLoading();
+        showStaleBadge(shownWeather != null ? shownSavedAt : settingsManager.getLastUpdateTime(), false);
+        Toast.makeText(this, R.string.using_cached_data, Toast.LENGTH_SHORT).show();
+    }
+    
     /**
      * Check if device has internet connection
      */
@@ -279,6 +473,9 @@ public class MainActivity extends AppCompatActivity {
     private void showSkeletonLoading() {
         isLoading = true;
         btnRefresh.setEnabled(false);
+        shownWeather = null;
+        showingCachedSummary = false;
+        hideStaleBadge();
         
         // Hide content
         tvCityName.setVisibility(View.GONE);
@@ -309,8 +506,13 @@ public class MainActivity extends AppCompatActivity {
         isLoading = false;
         btnRefresh.setEnabled(true);
         swipeRefreshLayout.setRefreshing(false);
-        
-        // Hide skeleton
+        hideSkeletonViews();
+    }
+    
+    /**
+     * Hide the skeleton placeholders only (a request may still be loading)
+     */
+    private void hideSkeletonViews() {
         skeletonCity.clearAnimation();
         skeletonIcon.clearAnimation();
         skeletonTemp.clearAnimation();
@@ -327,6 +529,9 @@ public class MainActivity extends AppCompatActivity {
      */
     private void showErrorState(String errorMessage, ErrorType errorType) {
         hideSkeletonLoading();
+        shownWeather = null;
+        showingCachedSummary = false;
+        hideStaleBadge();
         
         // Hide content
         tvCityName.setVisibility(View.GONE);
@@ -367,6 +572,15 @@ public class MainActivity extends AppCompatActivity {
      */
     private void showContent() {
         hideSkeletonLoading();
+        showContentViews();
+    }
+    
+    /**
+     * Make the content views visible without ending the loading state
+     */
+    private void showContentViews() {
+        hideSkeletonViews();
+        boolean wasHidden = tvTemperature.getVisibility() != View.VISIBLE;
         
         errorContainer.setVisibility(View.GONE);
         tvCityName.setVisibility(View.VISIBLE);
@@ -376,12 +590,14 @@ public class MainActivity extends AppCompatActivity {
         tvLastUpdated.setVisibility(View.VISIBLE);
         btnRefresh.setVisibility(View.VISIBLE);
         
-        // Apply fade-in animation
-        Animation fadeIn = AnimationUtils.loadAnimation(this, R.anim.fade_in);
-        tvCityName.startAnimation(fadeIn);
-        ivWeatherIcon.startAnimation(fadeIn);
-        tvTemperature.startAnimation(fadeIn);
-        tvCondition.startAnimation(fadeIn);
+        // Apply fade-in animation (not when refreshing what is already visible)
+        if (wasHidden) {
+            Animation fadeIn = AnimationUtils.loadAnimation(this, R.anim.fade_in);
+            tvCityName.startAnimation(fadeIn);
+            ivWeatherIcon.startAnimation(fadeIn);
+            tvTemperature.startAnimation(fadeIn);
+            tvCondition.startAnimation(fadeIn);
+        }
     }
     
     /**
@@ -403,6 +619,35 @@ public class MainActivity extends AppCompatActivity {
         return hour < 6 || hour >= 18; // Night from 6 PM to 6 AM
     }
     
+    /**
+     * Show a failed weather request, by kind of failure
+     */
+    private void showApiError(ApiError error) {
+        switch (error.getKind()) {
+            case NETWORK:
+            case TIMEOUT:
+                showErrorState(getString(R.string.error_network), ErrorType.NO_INTERNET);
+                break;
+            case RATE_LIMITED:
+            case THROTTLED:
+                showErrorState(getString(R.string.error_api_quota), ErrorType.API_QUOTA);
+                break;
+            case SERVER:
+            case CIRCUIT_OPEN:
+                // Retrying right away would only be rejected again
+                long seconds = Math.max(1, (error.getRetryAfterMillis() + 999) / 1000);
+                showErrorState(error.getRetryAfterMillis() > 0
+                        ? getString(R.string.error_api_unavailable_retry, seconds)
+                        : getString(R.string.error_api_unavailable), ErrorType.API_ERROR);
+                break;
+            case NOT_FOUND:
+                showErrorState(getString(R.string.error_city_not_found), ErrorType.API_ERROR);
+                break;
+            default:
+                showErrorState(error.getMessage(), ErrorType.API_ERROR);
+        }
+    }
+    
     enum ErrorType {
         NO_INTERNET,
         API_ERROR,
@@ -417,80 +662,131 @@ public class MainActivity extends AppCompatActivity {
     private void fetchWeatherData() {
         // Check network connectivity first
         if (!isNetworkAvailable()) {
-            showErrorState(getString(R.string.error_no_internet), ErrorType.NO_INTERNET);
+            if (hasContentOnScreen()) {
+                keepStaleContent();
+            } else {
+                showErrorState(getString(R.string.error_no_internet), ErrorType.NO_INTERNET);
+            }
             return;
         }
         
         // Use currentCity from settings (don't reset!)
-        // currentCity is already set in onCreate() and onResume()
-        currentLat = 0;
-        currentLon = 0;
+        // currentCity (and its coordinates) is set by openCurrentCity() or a city search
         
-        // Show skeleton loading
-        showSkeletonLoading();
+        // Keep what is on screen while it revalidates; skeleton only on a cold start
+        if (hasContentOnScreen()) {
+            isLoading = true;
+            btnRefresh.setEnabled(false);
+            if (tvStaleBadge.getVisibility() == View.VISIBLE) {
+                showStaleBadge(shownSavedAt, true);
+            }
+        } else {
+            showSkeletonLoading();
+        }
         
-        // Call API
-        weatherApiClient.fetchWeather(currentCity, new WeatherApiClient.WeatherCallback() {
+        // Call API - current weather and forecast are requested in parallel
+        WeatherApiClient.WeatherLoadCallback callback = new WeatherApiClient.WeatherLoadCallback() {
             @Override
-            public void onSuccess(WeatherApiClient.WeatherData weatherData) {
+            public void onWeather(WeatherApiClient.WeatherData weatherData) {
+                if (weatherData.stale) {
+                    // The API failed and this is the last cached copy - show it as old, save nothing
+                    showContent();
+                    renderWeather(weatherData);
+                    shownSavedAt = weatherData.savedAt;
+                    if (shownSavedAt > 0) {
+                        updateLastUpdatedTime(shownSavedAt);
+                    }
+                    showStaleBadge(shownSavedAt, false);
+                    Toast.makeText(MainActivity.this, R.string.using_cached_data, Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                
                 showContent();
                 displayWeatherData(weatherData);
+                hideStaleBadge();
                 
-                // Update last update time
-                long currentTime = System.currentTimeMillis();
-                settingsManager.setLastUpdateTime(currentTime);
-                updateLastUpdatedTime(currentTime);
+                // Update last update time (when the API sent it - a fresh cache hit may be minutes old)
+                long savedAt = weatherData.savedAt > 0 ? weatherData.savedAt : System.currentTimeMillis();
+                shownSavedAt = savedAt;
+                settingsManager.setLastUpdateTime(savedAt);
+                updateLastUpdatedTime(savedAt);
             }
             
             @Override
-            public void onError(String errorMessage) {
-                // Determine error type
-                ErrorType errorType = ErrorType.API_ERROR;
-                String displayMessage = errorMessage;
-                
-                if (errorMessage.contains("429") || errorMessage.contains("quota")) {
-                    errorType = ErrorType.API_QUOTA;
-                    displayMessage = getString(R.string.error_api_quota);
-                } else if (errorMessage.contains("network") || errorMessage.contains("timeout")) {
-                    errorType = ErrorType.NO_INTERNET;
-                    displayMessage = getString(R.string.error_network);
+            public void onWeatherError(ApiError error) {
+                if (hasContentOnScreen()) {
+                    keepStaleContent();
+                } else {
+                    showApiError(error);
                 }
-                
-                showErrorState(displayMessage, errorType);
             }
-        });
+            
+            @Override
+            public void onForecast(List<WeatherApiClient.ForecastDay> forecastList) {
+                displayForecast(forecastList);
+            }
+            
+            @Override
+            public void onForecastError(ApiError error) {
+                Log.e("Forecast", "Error loading forecast: " + error.getMessage());
+                // Don't show error to user, just hide forecast section silently
+            }
+            
+            @Override
+            public void onComplete(long latencyMillis) {
+                // Logging only - not called if the load is cancelled, so no state depends on it
+                Log.d("MainActivity", "Full screen loaded in " + latencyMillis + "ms");
+            }
+        };
+        if (hasCoordinates()) {
+            // One Call needs coordinates, so a city loaded by name always takes two calls
+            lifecycleScope.track(weatherApiClient.fetchWeatherAndForecast(currentLat, currentLon,
+                    settingsManager.getFetchMode(), callback));
+        } else {
+            lifecycleScope.track(weatherApiClient.fetchWeatherAndForecast(currentCity, callback));
+        }
     }
     
     /**
-     * Display weather data on UI with animations and gradient background
+     * Display freshly fetched weather data and save its summary for offline viewing
      */
     private void displayWeatherData(WeatherApiClient.WeatherData weatherData) {
-        // Show content views (city name, icon, temperature, condition)
+        // Show content views (city name, icon, temperature, condition) and end loading
         showContent();
+        renderWeather(weatherData);
+        
+        // Cache data for offline viewing (in Celsius, like the model)
+        String cityToCache = currentCity != null ? currentCity : weatherData.cityName;
+        settingsManager.cacheWeatherData(cityToCache, weatherData.temperature, weatherData.description);
+    }
+    
+    /**
+     * Render weather data with animations and gradient background.
+     * Nothing is saved and the loading state is left alone, so this is also
+     * used for cached snapshots and unit changes while a refresh runs.
+     */
+    private void renderWeather(WeatherApiClient.WeatherData weatherData) {
+        showContentViews();
         
         // City name - use currentCity if available, otherwise use weatherData.cityName
         if (currentCity != null && !currentCity.isEmpty()) {
-            tvCityName.setText(currentCity);
+            setTextIfChanged(tvCityName, currentCity);
         } else {
-            tvCityName.setText(weatherData.cityName);
+            setTextIfChanged(tvCityName, weatherData.cityName);
         }
         
-        // Temperature (with unit conversion based on preferences)
-        String tempText;
-        if (settingsManager.isCelsius()) {
-            tempText = String.format(Locale.getDefault(), "%.1f°C", weatherData.temperature);
-        } else {
-            tempText = String.format(Locale.getDefault(), "%.1f°F", 
-                                    weatherData.getTemperatureInFahrenheit());
-        }
-        tvTemperature.setText(tempText);
+        // Temperature (the model is in Celsius, converted for display only)
+        TemperatureFormat format = TemperatureFormat.from(settingsManager);
+        setTextIfChanged(tvTemperature, format.withUnit(weatherData.temperature));
         
         // Condition
-        tvCondition.setText(weatherData.description);
+        setTextIfChanged(tvCondition, weatherData.description);
         
         // Weather icon
-        int iconResId = WeatherApiClient.getWeatherIcon(weatherData.weatherId);
-        ivWeatherIcon.setImageResource(iconResId);
+        if (shownWeather == null || shownWeather.weatherId != weatherData.weatherId) {
+            int iconResId = WeatherApiClient.getWeatherIcon(weatherData.weatherId);
+            ivWeatherIcon.setImageResource(iconResId);
+        }
         
         // Set background gradient based on weather and temperature
         int gradientResId = WeatherApiClient.getBackgroundGradient(
@@ -498,72 +794,73 @@ public class MainActivity extends AppCompatActivity {
             weatherData.temperature, 
             isNightTime()
         );
-        mainLayout.setBackgroundResource(gradientResId);
+        if (gradientResId != shownGradientResId) {
+            mainLayout.setBackgroundResource(gradientResId);
+            shownGradientResId = gradientResId;
+        }
         
         // Display extended weather details
-        displayWeatherDetails(weatherData);
-        
-        // Load 5-day forecast
-        String cityForForecast = currentCity != null ? currentCity : weatherData.cityName;
-        loadForecast(cityForForecast);
-        
-        // Cache data for offline viewing
-        String cityToCache = currentCity != null ? currentCity : weatherData.cityName;
-        settingsManager.cacheWeatherData(cityToCache, tempText, weatherData.description);
+        displayWeatherDetails(weatherData, format);
+        shownWeather = weatherData;
+        showingCachedSummary = false;
+        shownUnit = settingsManager.getTemperatureUnit();
     }
     
     /**
      * Display extended weather details
      */
-    private void displayWeatherDetails(WeatherApiClient.WeatherData data) {
+    private void displayWeatherDetails(WeatherApiClient.WeatherData data, TemperatureFormat format) {
         // Feels Like
-        String feelsLikeText;
-        if (settingsManager.isCelsius()) {
-            feelsLikeText = String.format(Locale.getDefault(), "%.0f°", data.feelsLike);
-        } else {
-            feelsLikeText = String.format(Locale.getDefault(), "%.0f°", data.getFeelsLikeInFahrenheit());
-        }
-        tvFeelsLike.setText(feelsLikeText);
+        setTextIfChanged(tvFeelsLike, format.degrees(data.feelsLike));
         
         // Humidity
-        tvHumidity.setText(String.format(Locale.getDefault(), "%d%%", data.humidity));
+        setTextIfChanged(tvHumidity, String.format(Locale.getDefault(), "%d%%", data.humidity));
         
         // Wind
         String windText = String.format(Locale.getDefault(), "%.1f m/s %s", 
                                        data.windSpeed, data.getWindDirection());
-        tvWind.setText(windText);
+        setTextIfChanged(tvWind, windText);
         
         // Pressure
-        tvPressure.setText(String.format(Locale.getDefault(), "%d hPa", data.pressure));
+        setTextIfChanged(tvPressure, String.format(Locale.getDefault(), "%d hPa", data.pressure));
         
         // Visibility
         double visibilityKm = data.visibility / 1000.0;
-        tvVisibility.setText(String.format(Locale.getDefault(), "%.1f km", visibilityKm));
+        setTextIfChanged(tvVisibility, String.format(Locale.getDefault(), "%.1f km", visibilityKm));
         
         // Sunrise & Sunset
         SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
         if (data.sunrise > 0) {
-            tvSunrise.setText(timeFormat.format(new Date(data.sunrise * 1000)));
+            setTextIfChanged(tvSunrise, timeFormat.format(new Date(data.sunrise * 1000)));
         } else {
-            tvSunrise.setText("--:--");
+            setTextIfChanged(tvSunrise, "--:--");
         }
         
         if (data.sunset > 0) {
-            tvSunset.setText(timeFormat.format(new Date(data.sunset * 1000)));
+            setTextIfChanged(tvSunset, timeFormat.format(new Date(data.sunset * 1000)));
         } else {
-            tvSunset.setText("--:--");
+            setTextIfChanged(tvSunset, "--:--");
         }
         
         // UV Index (placeholder - need separate API call)
         if (data.uvIndex > 0) {
-            tvUV.setText(String.format(Locale.getDefault(), "%.0f (%s)", 
+            setTextIfChanged(tvUV, String.format(Locale.getDefault(), "%.0f (%s)", 
                                       data.uvIndex, data.getUvIndexLevel()));
         } else {
-            tvUV.setText("N/A");
+            setTextIfChanged(tvUV, "N/A");
         }
         
         // Clouds
-        tvClouds.setText(String.format(Locale.getDefault(), "%d%%", data.clouds));
+        setTextIfChanged(tvClouds, String.format(Locale.getDefault(), "%d%%", data.clouds));
+    }
+    
+    /**
+     * Set text only if it differs - a refresh that changes nothing causes no relayout
+     */
+    private static void setTextIfChanged(TextView view, String text) {
+        if (!TextUtils.equals(view.getText(), text)) {
+            view.setText(text);
+        }
     }
     
     
@@ -643,13 +940,16 @@ public class MainActivity extends AppCompatActivity {
         if (!currentCity.equals(newDefaultCity)) {
             Log.d("MainActivity", "City changed! Fetching weather for: " + newDefaultCity);
             currentCity = newDefaultCity;
-            fetchWeatherData(); // Refresh if city changed
-        } else {
-            // Just update display if only unit changed
-            if (settingsManager.hasCachedData()) {
-                // Re-fetch to update temperature unit
-                fetchWeatherData();
-            }
+            
+            // What is on screen belongs to the old city
+            shownWeather = null;
+            showingCachedSummary = false;
+            hideStaleBadge();
+            openCurrentCity(); // Refresh if city changed
+        } else if (shownUnit != null && !shownUnit.equals(settingsManager.getTemperatureUnit())) {
+            // Only the unit changed - the data in memory is unit-free, just render it again
+            Log.d("MainActivity", "Unit changed, re-rendering without a request");
+            renderInCurrentUnit();
         }
     }
     
@@ -659,26 +959,45 @@ public class MainActivity extends AppCompatActivity {
         swipeRefreshLayout.setRefreshing(false);
     }
     
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (isFinishing() || isChangingConfigurations()) {
+            // Back pressed or rotating - nothing will show these results
+            lifecycleScope.cancelAll();
+            cityAutocomplete.cancel();
+        }
+    }
+    
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Clean up
+        lifecycleScope.cancelAll();
+        cityAutocomplete.cancel();
+        snapshotLoad = null;
+        cityLoad = null;
     }
     
     // ==================== City Search Methods ====================
     
-    /**
-     * Search cities using OpenWeather Geocoding API
-     */
-    private void searchCities(String query) {
-        new SearchCitiesTask().execute(query);
-    }
-    
     /**
      * Fetch weather for selected city
      */
     private void fetchWeatherForCity(String cityQuery) {
-        new FetchCityCoordinatesTask(cityQuery).execute();
+        showSkeletonLoading();
+        GeocodingService geocoding = GeocodingService.getInstance(this);
+        lifecycleScope.track(NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new FetchCityCoordinatesTask(geocoding, cityQuery), new NetworkExecutor.Callback<Location>() {
+            @Override
+            public void onSuccess(Location location) {
+                onCityCoordinatesLoaded(location);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                onCityCoordinatesLoaded(null);
+            }
+        }));
     }
     
     /**
@@ -691,152 +1010,53 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    // ==================== AsyncTasks for City Search ====================
+    // ==================== Background Tasks for City Search ====================
     
     /**
-     * Search cities using OpenWeather Geocoding API
+     * Show city suggestions in the search dropdown
      */
-    private class SearchCitiesTask extends AsyncTask<String, Void, List<String>> {
-        @Override
-        protected List<String> doInBackground(String... params) {
-            String query = params[0];
-            List<String> results = new ArrayList<>();
-            
-            try {
-                String encodedQuery = URLEncoder.encode(query, "UTF-8");
-                String urlString = "http://api.openweathermap.org/geo/1.0/direct?q=" + 
-                                   encodedQuery + "&limit=5&appid=" + API_KEY;
-                
-                android.util.Log.d("SearchCities", "URL: " + urlString);
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                
-                int responseCode = connection.getResponseCode();
-                android.util.Log.d("SearchCities", "Response code: " + responseCode);
-                
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                reader.close();
-                connection.disconnect();
-                
-                android.util.Log.d("SearchCities", "Response: " + response.toString());
-                
-                // Parse JSON response
-                JSONArray jsonArray = new JSONArray(response.toString());
-                android.util.Log.d("SearchCities", "JSON array length: " + jsonArray.length());
-                
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    JSONObject city = jsonArray.getJSONObject(i);
-                    String name = city.getString("name");
-                    String country = city.optString("country", "");
-                    String state = city.optString("state", "");
-                    
-                    String displayName = name;
-                    if (!state.isEmpty()) {
-                        displayName += ", " + state;
-                    }
-                    if (!country.isEmpty()) {
-                        displayName += ", " + country;
-                    }
-                    
-                    results.add(displayName);
-                }
-                
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            
-            return results;
+    private void showCitySuggestions(List<String> results) {
+        android.util.Log.d("SearchCities", "Results count: " + results.size());
+        for (String city : results) {
+            android.util.Log.d("SearchCities", "City: " + city);
         }
         
-        @Override
-        protected void onPostExecute(List<String> results) {
-            android.util.Log.d("SearchCities", "Results count: " + results.size());
-            for (String city : results) {
-                android.util.Log.d("SearchCities", "City: " + city);
-            }
-            
-            if (results.isEmpty()) {
-                android.util.Log.e("SearchCities", "No results found!");
-                Toast.makeText(MainActivity.this, "No cities found", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            
-            ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                MainActivity.this,
-                R.layout.dropdown_item,
-                results
-            );
-            etSearchCity.setAdapter(adapter);
-            etSearchCity.showDropDown();
-            
-            android.util.Log.d("SearchCities", "Dropdown should be showing now");
+        if (results.isEmpty()) {
+            android.util.Log.e("SearchCities", "No results found!");
+            Toast.makeText(MainActivity.this, "No cities found", Toast.LENGTH_SHORT).show();
+            return;
         }
+        
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+            MainActivity.this,
+            R.layout.dropdown_item,
+            results
+        );
+        etSearchCity.setAdapter(adapter);
+        etSearchCity.showDropDown();
+        
+        android.util.Log.d("SearchCities", "Dropdown should be showing now");
     }
     
     /**
-     * Fetch coordinates for a selected city and load weather
+     * Fetch coordinates for a selected city
+     * Result is a Location whose full name is "City, CountryCode"
      */
-    private class FetchCityCoordinatesTask extends AsyncTask<Void, Void, Double[]> {
-        private String cityQuery;
-        private String cityName;
+    private static class FetchCityCoordinatesTask implements Callable<Location> {
+        private final GeocodingService geocoding;
+        private final String cityQuery;
         
-        public FetchCityCoordinatesTask(String cityQuery) {
+        FetchCityCoordinatesTask(GeocodingService geocoding, String cityQuery) {
+            this.geocoding = geocoding;
             this.cityQuery = cityQuery;
         }
         
         @Override
-        protected void onPreExecute() {
-            showSkeletonLoading();
-        }
-        
-        @Override
-        protected Double[] doInBackground(Void... params) {
+        public Location call() {
             try {
-                String encodedQuery = URLEncoder.encode(cityQuery, "UTF-8");
-                String urlString = "http://api.openweathermap.org/geo/1.0/direct?q=" + 
-                                   encodedQuery + "&limit=1&appid=" + API_KEY;
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                reader.close();
-                connection.disconnect();
-                
-                // Parse JSON response
-                JSONArray jsonArray = new JSONArray(response.toString());
-                if (jsonArray.length() > 0) {
-                    JSONObject city = jsonArray.getJSONObject(0);
-                    
-                    cityName = city.getString("name");
-                    String country = city.optString("country", "");
-                    if (!country.isEmpty()) {
-                        cityName += ", " + country;
-                    }
-                    
-                    double lat = city.getDouble("lat");
-                    double lon = city.getDouble("lon");
-                    
-                    return new Double[]{lat, lon};
+                WeatherApiClient.GeoResult city = geocoding.resolve(cityQuery);
+                if (city != null) {
+                    return new Location(city.name, city.country, city.lat, city.lon);
                 }
                 
             } catch (Exception e) {
@@ -845,87 +1065,83 @@ public class MainActivity extends AppCompatActivity {
             
             return null;
         }
+    }
+    
+    /**
+     * Saved place and cached snapshot of a city (no network). The launch
+     * city's were usually read by StartupOrchestrator while the layout inflated.
+     */
+    private static class OpenCityTask implements Callable<StartupOrchestrator.LaunchData> {
+        private final DatabaseHelper dbHelper;
+        private final String city;
+        
+        OpenCityTask(DatabaseHelper dbHelper, String city) {
+            this.dbHelper = dbHelper;
+            this.city = city;
+        }
         
         @Override
-        protected void onPostExecute(Double[] coords) {
-            if (coords != null && coords.length == 2) {
-                currentCity = cityName;
-                currentLat = coords[0];
-                currentLon = coords[1];
-                
-                // Fetch weather using coordinates
-                fetchWeatherByCoordinates(currentLat, currentLon);
-            } else {
-                hideSkeletonLoading();
-                MainActivity.this.showErrorState("City not found\nPlease try a different search", ErrorType.API_ERROR);
-            }
+        public StartupOrchestrator.LaunchData call() {
+            StartupOrchestrator.LaunchData ready = StartupOrchestrator.takeLaunchData(city);
+            return ready != null ? ready : StartupOrchestrator.LaunchData.read(dbHelper, city);
         }
     }
     
     /**
-     * Fetch weather by coordinates
+     * Coordinates resolved (or not) - load weather
      */
-    private void fetchWeatherByCoordinates(double lat, double lon) {
-        weatherApiClient.fetchWeatherByCoordinates(lat, lon, new WeatherApiClient.WeatherCallback() {
-            @Override
-            public void onSuccess(WeatherApiClient.WeatherData weatherData) {
-                runOnUiThread(() -> {
-                    hideSkeletonLoading();
-                    displayWeatherData(weatherData);
-                });
-            }
+    private void onCityCoordinatesLoaded(Location location) {
+        if (location != null) {
+            currentCity = location.getFullName();
+            currentLat = location.getLatitude();
+            currentLon = location.getLongitude();
             
-            @Override
-            public void onError(String error) {
-                runOnUiThread(() -> {
-                    hideSkeletonLoading();
-                    showErrorState(error, ErrorType.API_ERROR);
-                });
-            }
-        });
+            // Same load as the default city: by these coordinates, in the fetch mode from Settings
+            fetchWeatherData();
+        } else {
+            hideSkeletonLoading();
+            MainActivity.this.showErrorState("City not found\nPlease try a different search", ErrorType.API_ERROR);
+        }
     }
     
     // ==================== Forecast Methods ====================
     
-    /**
-     * Load 5-day forecast
-     */
-    private void loadForecast(String cityName) {
-        weatherApiClient.fetchForecast(cityName, new WeatherApiClient.ForecastCallback() {
-            @Override
-            public void onSuccess(List<WeatherApiClient.ForecastDay> forecastList) {
-                runOnUiThread(() -> displayForecast(forecastList));
-            }
-            
-            @Override
-            public void onError(String error) {
-                android.util.Log.e("Forecast", "Error loading forecast: " + error);
-                // Don't show error to user, just hide forecast section silently
-            }
-        });
-    }
-    
     /**
      * Display forecast data in UI
+     * Rows are reused when the number of days is unchanged, and only
+     * the values that changed are set.
      */
     private void displayForecast(List<WeatherApiClient.ForecastDay> forecastList) {
-        forecastContainer.removeAllViews();
-        LayoutInflater inflater = LayoutInflater.from(this);
+        if (forecastList == shownForecast) {
+            return; // Same cached list (e.g. the snapshot, then the fresh cache hit)
+        }
         
-        for (WeatherApiClient.ForecastDay forecast : forecastList) {
-            View forecastItem = inflater.inflate(R.layout.item_forecast_day, forecastContainer, false);
+        if (forecastContainer.getChildCount() != forecastList.size()) {
+            forecastContainer.removeAllViews();
+            LayoutInflater inflater = LayoutInflater.from(this);
+            for (int i = 0; i < forecastList.size(); i++) {
+                forecastContainer.addView(inflater.inflate(R.layout.item_forecast_day, forecastContainer, false));
+            }
+        }
+        
+        TemperatureFormat format = TemperatureFormat.from(settingsManager);
+        for (int i = 0; i < forecastList.size(); i++) {
+            WeatherApiClient.ForecastDay forecast = forecastList.get(i);
+            View forecastItem = forecastContainer.getChildAt(i);
             
             TextView tvDay = forecastItem.findViewById(R.id.tvForecastDay);
             ImageView ivIcon = forecastItem.findViewById(R.id.ivForecastIcon);
             TextView tvMaxTemp = forecastItem.findViewById(R.id.tvForecastMaxTemp);
             TextView tvMinTemp = forecastItem.findViewById(R.id.tvForecastMinTemp);
             
-            tvDay.setText(forecast.dayName);
-            ivIcon.setImageResource(WeatherApiClient.getWeatherIcon(forecast.weatherId));
-            tvMaxTemp.setText(String.format(Locale.getDefault(), "%.0f°", forecast.maxTemp));
-            tvMinTemp.setText(String.format(Locale.getDefault(), "%.0f°", forecast.minTemp));
-            
-            forecastContainer.addView(forecastItem);
+            setTextIfChanged(tvDay, forecast.dayName);
+            if (!Integer.valueOf(forecast.weatherId).equals(ivIcon.getTag())) {
+                ivIcon.setImageResource(WeatherApiClient.getWeatherIcon(forecast.weatherId));
+                ivIcon.setTag(forecast.weatherId);
+            }
+            setTextIfChanged(tvMaxTemp, format.degrees(forecast.maxTemp));
+            setTextIfChanged(tvMinTemp, format.degrees(forecast.minTemp));
         }
+        shownForecast = forecastList;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,6 @@
 package com.example.weatherviewingapp;
 
 import android.app.AlertDialog;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -24,16 +23,12 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Manage Locations Activity
@@ -49,8 +44,16 @@ public class ManageLocationsActivity extends AppCompatActivity {
     private DatabaseHelper dbHelper;
     private LocationAdapter locationAdapter;
     private List<Location> locations;
+    private CityAutocomplete cityAutocomplete;
+    private WeatherApiClient weatherApiClient;
+    private SettingsManager settingsManager;
+    
+    // Current weather per location id (filled by refreshWeather)
+    private final Map<Integer, WeatherApiClient.WeatherData> locationWeather = new HashMap<>();
+    private Future<?> refreshTask;
     
-    private static final String API_KEY = "c087fa97752f540e360b43023b2d945a";
+    // Every request started here - cancelled when the screen goes away
+    private final LifecycleScope lifecycleScope = new LifecycleScope("ManageLocationsActivity");
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -70,6 +73,7 @@ public class ManageLocationsActivity extends AppCompatActivity {
         initViews();
         loadLocations();
         setupSearchAutocomplete();
+        refreshWeather();
     }
     
     private void initViews() {
@@ -78,8 +82,50 @@ public class ManageLocationsActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         tvNoLocations = findViewById(R.id.tvNoLocations);
         
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
         locations = new ArrayList<>();
+        weatherApiClient = new WeatherApiClient(this);
+        settingsManager = new SettingsManager(this);
+    }
+    
+    /**
+     * Load current weather for every saved location (batched group requests)
+     */
+    private void refreshWeather() {
+        if (locations.isEmpty()) {
+            return;
+        }
+        if (refreshTask != null) {
+            refreshTask.cancel(true);
+        }
+        refreshTask = lifecycleScope.track(weatherApiClient.refreshLocations(locations, new WeatherApiClient.RefreshCallback() {
+            @Override
+            public void onRefreshed(WeatherApiClient.RefreshResult result) {
+                refreshTask = null;
+                long now = System.currentTimeMillis();
+                for (Location location : locations) {
+                    WeatherApiClient.WeatherData data = result.weather.get(location.getId());
+                    if (data == null) {
+                        continue;
+                    }
+                    // Remember the city id so the next refresh can use a group request
+                    long cityId = data.cityId > 0 ? data.cityId : location.getCityId();
+                    dbHelper.updateLocationRefresh(location.getId(), cityId, now);
+                    location.setCityId(cityId);
+                    location.setLastUpdated(now);
+                }
+                locationWeather.putAll(result.weather);
+                if (locationAdapter != null) {
+                    locationAdapter.notifyDataSetChanged();
+                }
+            }
+            
+            @Override
+            public void onError(ApiError error) {
+                refreshTask = null;
+                Log.w("ManageLocations", "Weather refresh failed: " + error.getMessage());
+            }
+        }));
     }
     
     private void loadLocations() {
@@ -100,14 +146,27 @@ public class ManageLocationsActivity extends AppCompatActivity {
     private void setupSearchAutocomplete() {
         etSearchCity.setThreshold(2); // Start autocomplete after 2 characters
         
+        // Debounced, latest query wins
+        cityAutocomplete = new CityAutocomplete(this, new CityAutocomplete.Listener() {
+            @Override
+            public void onLoading(boolean loading) {
+                progressBar.setVisibility(loading ? View.VISIBLE : View.GONE);
+            }
+            
+            @Override
+            public void onSuggestions(String query, List<String> suggestions) {
+                showCitySuggestions(suggestions);
+            }
+        });
+        
         etSearchCity.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (s.length() >= 2) {
-                    searchCities(s.toString());
+                if (!etSearchCity.isPerformingCompletion()) {
+                    cityAutocomplete.onTextChanged(s);
                 }
             }
             
@@ -121,11 +180,14 @@ public class ManageLocationsActivity extends AppCompatActivity {
         });
     }
     
-    private void searchCities(String query) {
-        new SearchCitiesTask().execute(query);
-    }
-    
     private void showAddLocationDialog(String cityName) {
+        // A suggestion already knows its coordinates
+        WeatherApiClient.GeoResult place = cityAutocomplete.findSuggestion(cityName);
+        if (place != null) {
+            addLocation(new Location(place.name, place.country, place.lat, place.lon));
+            return;
+        }
+        
         // Parse city name (format: "City, Country")
         String[] parts = cityName.split(", ");
         if (parts.length < 2) {
@@ -137,7 +199,20 @@ public class ManageLocationsActivity extends AppCompatActivity {
         String country = parts[1];
         
         // Fetch coordinates for this city
-        new FetchCityCoordinatesTask(city, country).execute();
+        progressBar.setVisibility(View.VISIBLE);
+        GeocodingService geocoding = GeocodingService.getInstance(this);
+        lifecycleScope.track(NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new FetchCityCoordinatesTask(geocoding, city, country), new NetworkExecutor.Callback<Location>() {
+            @Override
+            public void onSuccess(Location location) {
+                onCityCoordinatesLoaded(location);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                onCityCoordinatesLoaded(null);
+            }
+        }));
     }
     
     private void addLocation(Location location) {
@@ -148,6 +223,7 @@ public class ManageLocationsActivity extends AppCompatActivity {
             Toast.makeText(this, "Added " + location.getCityName(), Toast.LENGTH_SHORT).show();
             etSearchCity.setText("");
             loadLocations();
+            refreshWeather();
         } else {
             Toast.makeText(this, "Failed to add location", Toast.LENGTH_SHORT).show();
         }
@@ -225,149 +301,68 @@ public class ManageLocationsActivity extends AppCompatActivity {
         return true;
     }
     
-    // ==================== AsyncTasks ====================
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (isFinishing() || isChangingConfigurations()) {
+            // Back pressed or rotating - nothing will show these results
+            lifecycleScope.cancelAll();
+            cityAutocomplete.cancel();
+        }
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        lifecycleScope.cancelAll();
+        cityAutocomplete.cancel();
+        refreshTask = null;
+    }
+    
+    // ==================== Background Tasks ====================
     
     /**
-     * Search cities using OpenWeather Geocoding API
+     * Show search results in the dropdown
      */
-    private class SearchCitiesTask extends AsyncTask<String, Void, List<String>> {
-        @Override
-        protected void onPreExecute() {
-            progressBar.setVisibility(View.VISIBLE);
-        }
+    private void showCitySuggestions(List<String> results) {
+        progressBar.setVisibility(View.GONE);
         
-        @Override
-        protected List<String> doInBackground(String... params) {
-            String query = params[0];
-            List<String> results = new ArrayList<>();
-            
-            try {
-                String encodedQuery = URLEncoder.encode(query, "UTF-8");
-                String urlString = "https://api.openweathermap.org/geo/1.0/direct?q=" + 
-                                   encodedQuery + "&limit=5&appid=" + API_KEY;
-                
-                android.util.Log.d("ManageLocations", "Searching: " + urlString);
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-                
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                reader.close();
-                connection.disconnect();
-                
-                // Parse JSON response
-                android.util.Log.d("ManageLocations", "Response: " + response.toString());
-                JSONArray jsonArray = new JSONArray(response.toString());
-                android.util.Log.d("ManageLocations", "Found " + jsonArray.length() + " cities");
-                
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    JSONObject city = jsonArray.getJSONObject(i);
-                    String name = city.getString("name");
-                    String country = city.optString("country", "");
-                    String state = city.optString("state", "");
-                    
-                    String displayName = name;
-                    if (!state.isEmpty()) {
-                        displayName += ", " + state;
-                    }
-                    if (!country.isEmpty()) {
-                        displayName += ", " + country;
-                    }
-                    
-                    results.add(displayName);
-                }
-                
-            } catch (Exception e) {
-                android.util.Log.e("ManageLocations", "Error searching cities", e);
-                e.printStackTrace();
-            }
-            
-            return results;
+        if (results == null || results.isEmpty()) {
+            Toast.makeText(ManageLocationsActivity.this, 
+                "Không tìm thấy thành phố. Thử lại!", Toast.LENGTH_SHORT).show();
+            return;
         }
         
-        @Override
-        protected void onPostExecute(List<String> results) {
-            progressBar.setVisibility(View.GONE);
-            
-            if (results == null || results.isEmpty()) {
-                Toast.makeText(ManageLocationsActivity.this, 
-                    "Không tìm thấy thành phố. Thử lại!", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            
-            ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                ManageLocationsActivity.this,
-                android.R.layout.simple_dropdown_item_1line,
-                results
-            );
-            etSearchCity.setAdapter(adapter);
-            etSearchCity.showDropDown();
-        }
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+            ManageLocationsActivity.this,
+            android.R.layout.simple_dropdown_item_1line,
+            results
+        );
+        etSearchCity.setAdapter(adapter);
+        etSearchCity.showDropDown();
     }
     
     /**
      * Fetch coordinates for a selected city
      */
-    private class FetchCityCoordinatesTask extends AsyncTask<Void, Void, Location> {
-        private String cityName;
-        private String countryCode;
+    private static class FetchCityCoordinatesTask implements Callable<Location> {
+        private final GeocodingService geocoding;
+        private final String cityName;
+        private final String countryCode;
         
-        public FetchCityCoordinatesTask(String cityName, String countryCode) {
+        FetchCityCoordinatesTask(GeocodingService geocoding, String cityName, String countryCode) {
+            this.geocoding = geocoding;
             this.cityName = cityName;
             this.countryCode = countryCode;
         }
         
         @Override
-        protected void onPreExecute() {
-            progressBar.setVisibility(View.VISIBLE);
-        }
-        
-        @Override
-        protected Location doInBackground(Void... params) {
+        public Location call() {
             try {
                 String query = cityName + "," + countryCode;
-                String encodedQuery = URLEncoder.encode(query, "UTF-8");
-                String urlString = "http://api.openweathermap.org/geo/1.0/direct?q=" + 
-                                   encodedQuery + "&limit=1&appid=" + API_KEY;
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream()));
-                StringBuilder response = new StringBuilder();
-                String line;
-                
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                reader.close();
-                connection.disconnect();
-                
-                // Parse JSON response
-                JSONArray jsonArray = new JSONArray(response.toString());
-                if (jsonArray.length() > 0) {
-                    JSONObject city = jsonArray.getJSONObject(0);
-                    
-                    String name = city.getString("name");
-                    String country = city.optString("country", "");
-                    double lat = city.getDouble("lat");
-                    double lon = city.getDouble("lon");
-                    
-                    return new Location(name, country, lat, lon);
+                WeatherApiClient.GeoResult city = geocoding.resolve(query);
+                if (city != null) {
+                    return new Location(city.name, city.country, city.lat, city.lon);
                 }
                 
             } catch (Exception e) {
@@ -376,17 +371,19 @@ public class ManageLocationsActivity extends AppCompatActivity {
             
             return null;
         }
+    }
+    
+    /**
+     * Coordinates resolved (or not) - save the location
+     */
+    private void onCityCoordinatesLoaded(Location location) {
+        progressBar.setVisibility(View.GONE);
         
-        @Override
-        protected void onPostExecute(Location location) {
-            progressBar.setVisibility(View.GONE);
-            
-            if (location != null) {
-                addLocation(location);
-            } else {
-                Toast.makeText(ManageLocationsActivity.this, 
-                    "Failed to fetch coordinates", Toast.LENGTH_SHORT).show();
-            }
+        if (location != null) {
+            addLocation(location);
+        } else {
+            Toast.makeText(ManageLocationsActivity.this, 
+                "Failed to fetch coordinates", Toast.LENGTH_SHORT).show();
         }
     }
     
@@ -412,6 +409,7 @@ public class ManageLocationsActivity extends AppCompatActivity {
             TextView tvCityName = convertView.findViewById(R.id.tvCityName);
             TextView tvCoordinates = convertView.findViewById(R.id.tvCoordinates);
             TextView tvTag = convertView.findViewById(R.id.tvTag);
+            TextView tvWeather = convertView.findViewById(R.id.tvLocationWeather);
             ImageButton btnSetDefault = convertView.findViewById(R.id.btnSetDefault);
             ImageButton btnEditTag = convertView.findViewById(R.id.btnEditTag);
             ImageButton btnDelete = convertView.findViewById(R.id.btnDelete);
@@ -421,6 +419,16 @@ public class ManageLocationsActivity extends AppCompatActivity {
             tvCoordinates.setText(String.format("%.2f, %.2f", 
                 location.getLatitude(), location.getLongitude()));
             
+            // Current weather, once the refresh has loaded it
+            WeatherApiClient.WeatherData weather = locationWeather.get(location.getId());
+            if (weather != null) {
+                tvWeather.setText(TemperatureFormat.from(settingsManager).degrees(weather.temperature)
+                        + " · " + weather.description);
+                tvWeather.setVisibility(View.VISIBLE);
+            } else {
+                tvWeather.setVisibility(View.GONE);
+            }
+            
             // Show tag if exists
             if (location.getTag() != null && !location.getTag().isEmpty()) {
                 tvTag.setVisibility(View.VISIBLE);
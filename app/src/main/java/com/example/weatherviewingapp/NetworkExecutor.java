@@ -0,0 +1,361 @@
+package com.example.weatherviewingapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared background executor for all network work (replaces AsyncTask)
+ *
+ * AsyncTask.execute() runs every task on one serial executor, so a burst of
+ * autocomplete searches could block the main weather load. This class uses a
+ * small bounded thread pool with a priority queue: tasks are ordered by lane
+ * first, then FIFO inside the same lane.
+ *
+ * Results are delivered on the main thread, like AsyncTask.onPostExecute().
+ */
+public class NetworkExecutor {
+
+    private static final String TAG = "NetworkExecutor";
+
+    private static final int POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Priority lanes - lower ordinal runs first
+     */
+    public enum Lane {
+        FOREGROUND_WEATHER, // Weather the user is looking at
+        FORECAST,           // 5-day forecast
+        AUTOCOMPLETE,       // City search suggestions
+        BACKGROUND_REFRESH  // Anything the user is not waiting for
+    }
+
+    /**
+     * Callback delivered on the main thread when a task finishes.
+     * Not called if the task was cancelled.
+     */
+    public interface Callback<T> {
+        void onSuccess(T result);
+        void onError(Exception error);
+    }
+
+    private static volatile NetworkExecutor instance;
+
+    // Lane of the task running on the current worker thread
+    private static final ThreadLocal<Lane> currentLane = new ThreadLocal<>();
+    // Task running on the current worker thread
+    private static final ThreadLocal<PrioritizedTask<?>> currentTask = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Per-lane counters (indexed by Lane.ordinal())
+    private final LaneStats[] laneStats;
+
+    public static NetworkExecutor getInstance() {
+        if (instance == null) {
+            synchronized (NetworkExecutor.class) {
+                if (instance == null) {
+                    instance = new NetworkExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private NetworkExecutor() {
+        executor = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(),
+            new NetworkThreadFactory()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        mainHandler = new Handler(Looper.getMainLooper());
+
+        laneStats = new LaneStats[Lane.values().length];
+        for (int i = 0; i < laneStats.length; i++) {
+            laneStats[i] = new LaneStats();
+        }
+    }
+
+    /**
+     * Submit work on a lane. The returned Future can be cancelled;
+     * a cancelled task never calls its callback.
+     *
+     * @param lane Priority lane
+     * @param work Work to run on a background thread
+     * @param callback Main-thread callback (may be null)
+     */
+    public <T> Future<T> submit(Lane lane, Callable<T> work, Callback<T> callback) {
+        PrioritizedTask<T> task = new PrioritizedTask<>(lane, sequence.getAndIncrement(), work, callback);
+        laneStats[lane.ordinal()].onQueued();
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Lane of the task running on this thread, or null if not called from a task
+     */
+    public static Lane currentLane() {
+        return currentLane.get();
+    }
+
+    /**
+     * Run this if the task on the current thread is cancelled while it runs
+     * (e.g. disconnect its open connection, which an interrupt alone does not
+     * unblock). Runs at once if the task was already cancelled. Pass null
+     * when the resource is released. Does nothing outside a task.
+     */
+    public static void setCancelAction(Runnable action) {
+        PrioritizedTask<?> task = currentTask.get();
+        if (task == null) {
+            return;
+        }
+        task.cancelAction = action;
+        if (action != null && task.isCancelled()) {
+            task.runCancelAction();
+        }
+    }
+
+    /**
+     * Run something on the main thread
+     */
+    public void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+
+    // ==================== Stats ====================
+
+    /**
+     * Number of tasks waiting to start on a lane
+     */
+    public int getQueueDepth(Lane lane) {
+        return laneStats[lane.ordinal()].queued.get();
+    }
+
+    /**
+     * Highest queue depth ever seen on a lane
+     */
+    public int getMaxQueueDepth(Lane lane) {
+        return laneStats[lane.ordinal()].maxQueued.get();
+    }
+
+    /**
+     * Average time a task waited in the queue before starting (ms)
+     */
+    public long getAverageWaitMillis(Lane lane) {
+        LaneStats stats = laneStats[lane.ordinal()];
+        long started = stats.started.get();
+        return started == 0 ? 0 : stats.totalWaitMillis.get() / started;
+    }
+
+    /**
+     * Longest time a task waited in the queue before starting (ms)
+     */
+    public long getMaxWaitMillis(Lane lane) {
+        return laneStats[lane.ordinal()].maxWaitMillis.get();
+    }
+
+    /**
+     * Number of tasks cancelled before or while running
+     */
+    public long getCancelledCount(Lane lane) {
+        return laneStats[lane.ordinal()].cancelled.get();
+    }
+
+    /**
+     * Number of tasks cancelled while running (their work was partly wasted)
+     */
+    public long getCancelledRunningCount(Lane lane) {
+        return laneStats[lane.ordinal()].cancelledRunning.get();
+    }
+
+    /**
+     * Human readable summary of all lanes (for logs / debug screen)
+     */
+    public String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "Pool: %d active / %d threads\n",
+                executor.getActiveCount(), executor.getPoolSize()));
+        for (Lane lane : Lane.values()) {
+            LaneStats stats = laneStats[lane.ordinal()];
+            sb.append(String.format(Locale.US,
+                    "%-18s queued=%d (max %d) started=%d cancelled=%d (%d running) wait avg=%dms max=%dms\n",
+                    lane.name(),
+                    stats.queued.get(), stats.maxQueued.get(),
+                    stats.started.get(), stats.cancelled.get(), stats.cancelledRunning.get(),
+                    getAverageWaitMillis(lane), stats.maxWaitMillis.get()));
+        }
+        return sb.toString();
+    }
+
+    // ==================== Internals ====================
+
+    /**
+     * FutureTask that orders itself by lane, then by submission order
+     */
+    private class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+
+        private final Lane lane;
+        private final long seq;
+        private final long queuedAt;
+        private volatile Callback<T> callback; // dropped on cancel so it can't keep an Activity alive
+        private final AtomicInteger state = new AtomicInteger(); // 0 = queued, 1 = started
+        private volatile Runnable cancelAction; // see setCancelAction()
+
+        PrioritizedTask(Lane lane, long seq, Callable<T> work, Callback<T> callback) {
+            super(work);
+            this.lane = lane;
+            this.seq = seq;
+            this.queuedAt = SystemClock.elapsedRealtime();
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (state.compareAndSet(0, 1)) {
+                long waited = SystemClock.elapsedRealtime() - queuedAt;
+                laneStats[lane.ordinal()].onStarted(waited);
+                if (waited > 1000) {
+                    Log.w(TAG, lane + " task waited " + waited + "ms in queue");
+                }
+            }
+            currentLane.set(lane);
+            currentTask.set(this);
+            try {
+                super.run();
+            } finally {
+                currentLane.remove();
+                currentTask.remove();
+                cancelAction = null;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                callback = null;
+                LaneStats stats = laneStats[lane.ordinal()];
+                stats.cancelled.incrementAndGet();
+                // Still in the queue: drop it now instead of waiting for a worker
+                if (state.compareAndSet(0, 1)) {
+                    stats.queued.decrementAndGet();
+                    executor.remove(this);
+                } else {
+                    stats.cancelledRunning.incrementAndGet();
+                    if (mayInterruptIfRunning) {
+                        runCancelAction();
+                    }
+                }
+            }
+            return cancelled;
+        }
+
+        void runCancelAction() {
+            Runnable action = cancelAction;
+            cancelAction = null;
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Cancel action failed: " + e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            final Callback<T> callback = this.callback;
+            if (callback == null || isCancelled()) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    callback.onSuccess(get());
+                } catch (java.util.concurrent.ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    callback.onError(cause instanceof Exception ? (Exception) cause : e);
+                } catch (Exception e) {
+                    callback.onError(e);
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            int byLane = Integer.compare(lane.ordinal(), other.lane.ordinal());
+            return byLane != 0 ? byLane : Long.compare(seq, other.seq);
+        }
+    }
+
+    /**
+     * Counters for one lane
+     */
+    private static class LaneStats {
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger maxQueued = new AtomicInteger();
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong cancelledRunning = new AtomicLong();
+        final AtomicLong totalWaitMillis = new AtomicLong();
+        final AtomicLong maxWaitMillis = new AtomicLong();
+
+        void onQueued() {
+            int depth = queued.incrementAndGet();
+            int max;
+            while (depth > (max = maxQueued.get()) && !maxQueued.compareAndSet(max, depth)) {
+                // retry
+            }
+        }
+
+        void onStarted(long waitedMillis) {
+            queued.decrementAndGet();
+            started.incrementAndGet();
+            totalWaitMillis.addAndGet(waitedMillis);
+            long max;
+            while (waitedMillis > (max = maxWaitMillis.get()) && !maxWaitMillis.compareAndSet(max, waitedMillis)) {
+                // retry
+            }
+        }
+    }
+
+    /**
+     * Background threads with readable names and lower priority than the UI thread
+     */
+    private static class NetworkThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "weather-net-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.weatherviewingapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 Reader over an InputStream that reads through a pooled byte buffer
+ *
+ * Replaces InputStreamReader, which allocates a new 8 KB buffer per response.
+ * The buffer goes back to BufferPool on close().
+ */
+public class PooledReader extends Reader {
+
+    // Decoders are not thread-safe, so keep one per network thread
+    // (a thread only reads one response at a time)
+    private static final ThreadLocal<CharsetDecoder> DECODER = new ThreadLocal<CharsetDecoder>() {
+        @Override
+        protected CharsetDecoder initialValue() {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
+
+    private final InputStream in;
+    private final CharsetDecoder decoder;
+    private byte[] buffer;
+    private ByteBuffer bytes;
+    private boolean endOfInput;
+    private boolean flushed;
+
+    public PooledReader(InputStream in) {
+        this.in = in;
+        this.decoder = DECODER.get();
+        this.decoder.reset();
+        this.buffer = BufferPool.acquireBytes();
+        this.bytes = ByteBuffer.wrap(buffer);
+        this.bytes.limit(0); // empty until first fill
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (buffer == null) {
+            throw new IOException("Reader closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (flushed) {
+            return -1;
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (true) {
+            decoder.decode(bytes, out, endOfInput);
+            if (out.position() > off) {
+                return out.position() - off;
+            }
+            if (endOfInput) {
+                decoder.flush(out);
+                flushed = true;
+                int count = out.position() - off;
+                return count == 0 ? -1 : count;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Move unread bytes to the front and read more from the stream
+     */
+    private void fill() throws IOException {
+        bytes.compact();
+        int read = in.read(buffer, bytes.position(), bytes.remaining());
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            bytes.position(bytes.position() + read);
+        }
+        bytes.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer != null) {
+            BufferPool.release(buffer);
+            buffer = null;
+            bytes = null;
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.weatherviewingapp;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Periodic background prefetch of weather + forecast (JobScheduler)
+ *
+ * Runs about once an hour, only on an unmetered network while the device is
+ * charging and idle. Loads the default city and every saved location through
+ * the normal WeatherApiClient path, so the results land in the disk cache and
+ * the next launch renders from it instead of a skeleton.
+ *
+ * Each run's duration and bytes received are kept in SharedPreferences for
+ * the debug screen.
+ */
+public class PrefetchJobService extends JobService {
+
+    private static final String TAG = "PrefetchJob";
+
+    private static final int JOB_ID = 1001;
+    private static final long PERIOD_MS = 60 * 60 * 1000L;
+
+    private static final String PREFS_NAME = "prefetch";
+    private static final String KEY_RUNS = "runs";
+    private static final String KEY_STOPPED = "stopped";
+    private static final String KEY_LAST_RUN_AT = "last_run_at";
+    private static final String KEY_LAST_DURATION = "last_duration_ms";
+    private static final String KEY_LAST_BYTES = "last_bytes";
+    private static final String KEY_LAST_LOADED = "last_loaded";
+    private static final String KEY_LAST_FAILED = "last_failed";
+    private static final String KEY_TOTAL_BYTES = "total_bytes";
+
+    private Future<RunStats> running;
+
+    /**
+     * Schedule the periodic job (does nothing if it is already scheduled)
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, PrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(PERIOD_MS)
+                .setPersisted(true) // survives reboots (RECEIVE_BOOT_COMPLETED)
+                .build();
+        if (scheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(TAG, "Could not schedule prefetch job");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        HttpDiskCache.init(this);
+        QuotaGovernor.init(this);
+
+        final Context context = getApplicationContext();
+        running = NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.BACKGROUND_REFRESH,
+                new PrefetchTask(context), new NetworkExecutor.Callback<RunStats>() {
+            @Override
+            public void onSuccess(RunStats stats) {
+                running = null;
+                record(context, stats);
+                jobFinished(params, false);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                running = null;
+                Log.w(TAG, "Prefetch failed: " + error.getMessage());
+                jobFinished(params, false);
+            }
+        });
+        return true; // work continues on the executor
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints no longer met (unplugged, woke up, left Wi-Fi)
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        prefs.edit().putInt(KEY_STOPPED, prefs.getInt(KEY_STOPPED, 0) + 1).apply();
+        return true; // try again next time
+    }
+
+    private static void record(Context context, RunStats stats) {
+        Log.d(TAG, "Prefetched " + stats.loaded + " places in " + stats.durationMillis + "ms, "
+                + stats.bytes + " B (" + stats.failed + " failed)");
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        prefs.edit()
+                .putInt(KEY_RUNS, prefs.getInt(KEY_RUNS, 0) + 1)
+                .putLong(KEY_LAST_RUN_AT, System.currentTimeMillis())
+                .putLong(KEY_LAST_DURATION, stats.durationMillis)
+                .putLong(KEY_LAST_BYTES, stats.bytes)
+                .putInt(KEY_LAST_LOADED, stats.loaded)
+                .putInt(KEY_LAST_FAILED, stats.failed)
+                .putLong(KEY_TOTAL_BYTES, prefs.getLong(KEY_TOTAL_BYTES, 0) + stats.bytes)
+                .apply();
+    }
+
+    /**
+     * Recorded runs, for the debug screen
+     */
+    public static String dumpStats(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        int runs = prefs.getInt(KEY_RUNS, 0);
+        if (runs == 0) {
+            return String.format(Locale.US, "No run yet (%d stopped early)\n", prefs.getInt(KEY_STOPPED, 0));
+        }
+        String lastRun = new SimpleDateFormat("dd/MM HH:mm", Locale.US)
+                .format(new Date(prefs.getLong(KEY_LAST_RUN_AT, 0)));
+        return String.format(Locale.US,
+                "Runs: %d (%d stopped early), %d KB in total\nLast run %s: %d places, %d failed, %d ms, %d B\n",
+                runs, prefs.getInt(KEY_STOPPED, 0), prefs.getLong(KEY_TOTAL_BYTES, 0) / 1024, lastRun,
+                prefs.getInt(KEY_LAST_LOADED, 0), prefs.getInt(KEY_LAST_FAILED, 0),
+                prefs.getLong(KEY_LAST_DURATION, 0), prefs.getLong(KEY_LAST_BYTES, 0));
+    }
+
+    /**
+     * What one run did
+     */
+    static class RunStats {
+        int loaded;
+        int failed;
+        long durationMillis;
+        long bytes; // received on the wire during the run
+    }
+
+    /**
+     * Loads weather + forecast for the default city and every saved location
+     */
+    private static class PrefetchTask implements Callable<RunStats> {
+        private final Context context;
+        private WeatherApiClient.FetchMode fetchMode;
+
+        PrefetchTask(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public RunStats call() throws Exception {
+            RunStats stats = new RunStats();
+            long start = SystemClock.elapsedRealtime();
+            long bytesBefore = HttpTransport.getInstance().getTotalWireBytes();
+
+            // Saved locations are loaded by coordinates, like MainActivity does
+            Set<String> done = new HashSet<>();
+            boolean defaultSaved = false;
+            SettingsManager settings = new SettingsManager(context);
+            String defaultCity = settings.getDefaultCity();
+            fetchMode = settings.getFetchMode();
+            for (Location location : DatabaseHelper.getInstance(context).getAllLocations()) {
+                defaultSaved |= location.getCityName().equalsIgnoreCase(defaultCity)
+                        || location.getFullName().equalsIgnoreCase(defaultCity);
+                String key = WeatherApiClient.coordinatesKey(location.getLatitude(), location.getLongitude());
+                if (done.add(key) && !prefetch(stats, location.getFullName(), location)) {
+                    return finish(stats, start, bytesBefore);
+                }
+            }
+            
+            // A default city typed in Settings is not saved - MainActivity loads it by name
+            if (!defaultSaved && defaultCity != null && !defaultCity.isEmpty()) {
+                prefetch(stats, defaultCity, null);
+            }
+            return finish(stats, start, bytesBefore);
+        }
+
+        /**
+         * @return false if the rest of the run should be skipped
+         */
+        private boolean prefetch(RunStats stats, String cityName, Location location) throws Exception {
+            try {
+                if (location != null && fetchMode == WeatherApiClient.FetchMode.ONE_CALL) {
+                    // Same cache entry MainActivity reads in One Call mode
+                    WeatherApiClient.requestOneCall(location.getLatitude(), location.getLongitude());
+                } else if (location != null) {
+                    WeatherApiClient.requestWeatherByCoordinates(location.getLatitude(), location.getLongitude());
+                    WeatherApiClient.requestForecastByCoordinates(location.getLatitude(), location.getLongitude());
+                } else {
+                    WeatherApiClient.requestWeather(cityName);
+                    WeatherApiClient.requestForecast(cityName);
+                }
+                stats.loaded++;
+                return true;
+            } catch (ApiError e) {
+                stats.failed++;
+                Log.w(TAG, "Could not prefetch " + cityName + ": " + e.getMessage());
+                // Out of background budget or the API is down - stop instead of piling on
+                return e.getKind() != ApiError.Kind.THROTTLED && e.getKind() != ApiError.Kind.CIRCUIT_OPEN;
+            }
+        }
+
+        private static RunStats finish(RunStats stats, long start, long bytesBefore) {
+            stats.durationMillis = SystemClock.elapsedRealtime() - start;
+            stats.bytes = HttpTransport.getInstance().getTotalWireBytes() - bytesBefore;
+            return stats;
+        }
+    }
+}
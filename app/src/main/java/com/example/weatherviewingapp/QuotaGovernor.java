@@ -0,0 +1,242 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Keeps OpenWeatherMap calls inside the plan limits, per API key
+ *
+ * Every request with an appid goes through acquire() (called by HttpTransport):
+ * - Per-minute token bucket (PER_MINUTE tokens, refilled continuously)
+ * - Daily counter (PER_DAY calls per UTC day), saved in SharedPreferences
+ *   so it survives restarts
+ *
+ * Background work (BACKGROUND_REFRESH lane, or not on a NetworkExecutor lane)
+ * may not use the last BACKGROUND_RESERVE of either budget and never waits.
+ * A user-initiated request waits up to MAX_WAIT_MS for a token. A request
+ * that cannot be admitted fails with ApiError.Kind.THROTTLED without being
+ * sent, and WeatherApiClient serves the cached copy instead.
+ */
+public class QuotaGovernor {
+
+    private static final String PREFS_NAME = "quota";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_USED = "used_";
+
+    // OpenWeatherMap free plan: 60 calls / minute; keep the day well under the monthly allowance
+    static final int PER_MINUTE = 60;
+    static final int PER_DAY = 1000;
+    private static final double BACKGROUND_RESERVE = 0.25;
+    private static final long MAX_WAIT_MS = 3000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private static volatile QuotaGovernor instance;
+
+    private final SharedPreferences prefs; // null in tests
+    private final Map<String, Budget> budgets = new HashMap<>(); // API key -> budget
+
+    // Stats
+    private long admitted;
+    private long queued;
+    private long queuedMillis;
+    private long throttledForeground;
+    private long throttledBackground;
+
+    /**
+     * Create the governor (safe to call more than once)
+     */
+    public static void init(Context context) {
+        if (instance == null) {
+            synchronized (QuotaGovernor.class) {
+                if (instance == null) {
+                    instance = new QuotaGovernor(context.getApplicationContext()
+                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the governor, or null if init() was not called yet
+     */
+    public static QuotaGovernor getInstance() {
+        return instance;
+    }
+
+    QuotaGovernor(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    /**
+     * Take one call from the budget of the URL's API key (blocks while queued).
+     * URLs without an appid are not counted.
+     * @throws ApiError THROTTLED if the request must not be sent
+     * @throws InterruptedIOException if the task was cancelled while queued
+     */
+    public void acquire(String url) throws ApiError, InterruptedIOException {
+        URI uri = URI.create(url);
+        String apiKey = queryParameter(uri.getRawQuery(), "appid");
+        if (apiKey == null) {
+            return;
+        }
+        NetworkExecutor.Lane lane = NetworkExecutor.currentLane();
+        boolean background = lane == null || lane == NetworkExecutor.Lane.BACKGROUND_REFRESH;
+        String path = uri.getPath() != null ? uri.getPath() : "";
+        acquire(apiKey, background, path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    synchronized void acquire(String apiKey, boolean background, String endpoint)
+            throws ApiError, InterruptedIOException {
+        Budget budget = budget(apiKey);
+        double minuteFloor = background ? PER_MINUTE * BACKGROUND_RESERVE : 0;
+        int dayLimit = background ? (int) (PER_DAY * (1 - BACKGROUND_RESERVE)) : PER_DAY;
+        long waitStart = 0;
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            budget.rollDay(now);
+            if (budget.usedToday >= dayLimit) {
+                throw throttled(background, endpoint, (budget.day + 1) * DAY_MS - now, "daily budget used up");
+            }
+
+            budget.refill(System.nanoTime());
+            if (budget.tokens - 1 >= minuteFloor) {
+                budget.tokens -= 1;
+                budget.usedToday++;
+                save(apiKey, budget);
+                admitted++;
+                if (waitStart != 0) {
+                    queuedMillis += (System.nanoTime() - waitStart) / 1000000L;
+                }
+                return;
+            }
+
+            // Time until the bucket is back above the floor
+            long waitMillis = (long) Math.ceil((minuteFloor + 1 - budget.tokens) * 60000.0 / PER_MINUTE);
+            long waited = waitStart == 0 ? 0 : (System.nanoTime() - waitStart) / 1000000L;
+            if (background || waited + waitMillis > MAX_WAIT_MS) {
+                throw throttled(background, endpoint, waitMillis, "per-minute budget used up");
+            }
+            if (waitStart == 0) {
+                waitStart = System.nanoTime();
+                queued++;
+            }
+            try {
+                wait(Math.max(1, waitMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Cancelled while waiting for quota");
+            }
+        }
+    }
+
+    private ApiError throttled(boolean background, String endpoint, long retryAfterMillis, String reason) {
+        if (background) {
+            throttledBackground++;
+        } else {
+            throttledForeground++;
+        }
+        return new ApiError(ApiError.Kind.THROTTLED, endpoint, 0, retryAfterMillis,
+                endpoint + ": not sent, " + reason, null);
+    }
+
+    /**
+     * Calls counted today (UTC) for an API key
+     */
+    public synchronized int getUsedToday(String apiKey) {
+        Budget budget = budget(apiKey);
+        budget.rollDay(System.currentTimeMillis());
+        return budget.usedToday;
+    }
+
+    public synchronized String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Budget> item : budgets.entrySet()) {
+            Budget budget = item.getValue();
+            budget.rollDay(now);
+            budget.refill(System.nanoTime());
+            sb.append(String.format(Locale.US, "Key ...%s: %d / %d calls today (UTC), %.1f / %d tokens this minute\n",
+                    suffix(item.getKey()), budget.usedToday, PER_DAY, budget.tokens, PER_MINUTE));
+        }
+        sb.append(String.format(Locale.US,
+                "Admitted: %d, queued: %d (avg wait %d ms)\nThrottled: %d user, %d background\n",
+                admitted, queued, queued == 0 ? 0 : queuedMillis / queued,
+                throttledForeground, throttledBackground));
+        return sb.toString();
+    }
+
+    // ==================== Internals ====================
+
+    private Budget budget(String apiKey) {
+        Budget budget = budgets.get(apiKey);
+        if (budget == null) {
+            budget = new Budget(System.nanoTime());
+            if (prefs != null) {
+                // rollDay() resets it if it was saved on an earlier day
+                budget.day = prefs.getLong(KEY_DAY + suffix(apiKey), -1);
+                budget.usedToday = prefs.getInt(KEY_USED + suffix(apiKey), 0);
+            }
+            budgets.put(apiKey, budget);
+        }
+        return budget;
+    }
+
+    private void save(String apiKey, Budget budget) {
+        if (prefs != null) {
+            prefs.edit()
+                    .putLong(KEY_DAY + suffix(apiKey), budget.day)
+                    .putInt(KEY_USED + suffix(apiKey), budget.usedToday)
+                    .apply();
+        }
+    }
+
+    /**
+     * Last characters of the key - enough to tell keys apart without storing them
+     */
+    private static String suffix(String apiKey) {
+        return apiKey.length() <= 4 ? apiKey : apiKey.substring(apiKey.length() - 4);
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static class Budget {
+        double tokens = PER_MINUTE;
+        long refilledAt; // System.nanoTime()
+        long day = -1; // UTC epoch day of usedToday
+        int usedToday;
+
+        Budget(long now) {
+            refilledAt = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(PER_MINUTE, tokens + (now - refilledAt) / 1e9 * PER_MINUTE / 60.0);
+            refilledAt = now;
+        }
+
+        void rollDay(long nowMillis) {
+            long today = nowMillis / DAY_MS;
+            if (today != day) {
+                day = today;
+                usedToday = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.weatherviewingapp;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries a request with capped exponential backoff and jitter
+ *
+ * - Only transient failures are retried (network, timeout, 5xx); a 404 or a
+ *   bad API key fails at once
+ * - Delay before retry n: random in [ceiling / 2, ceiling], ceiling =
+ *   min(MAX_DELAY, BASE_DELAY * 2^(n-1)), so clients that failed together
+ *   do not all come back at the same moment
+ * - Retry-After is honoured; if it asks for more than MAX_DELAY we give up
+ *   and let the circuit breaker hold further requests back
+ * - Every attempt goes through the endpoint's CircuitBreaker
+ *
+ * The backoff sleeps on the calling (network) thread; cancelling the task
+ * interrupts it.
+ */
+public class RetryPolicy {
+
+    private static final String TAG = "RetryPolicy";
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 4000);
+
+    /**
+     * One attempt of the request
+     */
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    // Stats, all policies together
+    private static final AtomicLong attempts = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong retryAfterHonoured = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong backoffMillis = new AtomicLong();
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Run the request, retrying transient failures
+     * @throws ApiError when it failed for good (or the breaker is open)
+     * @throws InterruptedIOException when the task was cancelled
+     */
+    public <T> T execute(CircuitBreaker breaker, Attempt<T> attempt) throws IOException {
+        for (int n = 1; ; n++) {
+            if (!breaker.allowRequest()) {
+                failures.incrementAndGet();
+                throw breaker.rejection();
+            }
+            attempts.incrementAndGet();
+
+            ApiError error;
+            try {
+                T result = attempt.run();
+                breaker.onSuccess();
+                return result;
+            } catch (IOException e) {
+                if (ApiError.isCancellation(e)) {
+                    breaker.release();
+                    throw e;
+                }
+                error = ApiError.fromException(breaker.getEndpoint(), e);
+            } catch (RuntimeException e) {
+                breaker.release();
+                throw e;
+            }
+
+            breaker.onFailure(error);
+            long delay = n < maxAttempts && error.isTransient() ? delayMillis(n, error) : -1;
+            if (delay < 0 || breaker.getState() != CircuitBreaker.State.CLOSED) {
+                failures.incrementAndGet();
+                throw error;
+            }
+
+            Log.d(TAG, breaker.getEndpoint() + ": attempt " + n + " failed (" + error.getKind()
+                    + "), retrying in " + delay + "ms");
+            retries.incrementAndGet();
+            backoffMillis.addAndGet(delay);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Cancelled during backoff");
+            }
+        }
+    }
+
+    /**
+     * Delay before retrying after the given attempt, or -1 to give up
+     */
+    long delayMillis(int attempt, ApiError error) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+
+        long retryAfter = error.getRetryAfterMillis();
+        if (retryAfter >= 0) {
+            if (retryAfter > maxDelayMillis) {
+                return -1;
+            }
+            retryAfterHonoured.incrementAndGet();
+            delay = Math.max(delay, retryAfter);
+        }
+        return delay;
+    }
+
+    public static String dumpStats() {
+        return String.format(Locale.US,
+                "Attempts: %d, retries: %d (Retry-After honoured %d)\nFailed for good: %d\nTime in backoff: %d ms\n",
+                attempts.get(), retries.get(), retryAfterHonoured.get(), failures.get(), backoffMillis.get());
+    }
+}
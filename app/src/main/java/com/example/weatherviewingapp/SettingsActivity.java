@@ -11,11 +11,14 @@ import androidx.appcompat.widget.Toolbar;
  * Settings Activity (Ch. 5 - Navigation)
  * Features:
  * - Temperature unit selection (SharedPreferences - Ch. 7.a)
+ * - Fetch mode: two requests or a single One Call request (adds the UV index)
  */
 public class SettingsActivity extends AppCompatActivity {
     
     private RadioGroup rgTemperatureUnit;
     private RadioButton rbCelsius, rbFahrenheit;
+    private RadioGroup rgFetchMode;
+    private RadioButton rbTwoCalls, rbOneCall;
     
     private SettingsManager settingsManager;
     
@@ -54,6 +57,9 @@ public class SettingsActivity extends AppCompatActivity {
         rgTemperatureUnit = findViewById(R.id.rgTemperatureUnit);
         rbCelsius = findViewById(R.id.rbCelsius);
         rbFahrenheit = findViewById(R.id.rbFahrenheit);
+        rgFetchMode = findViewById(R.id.rgFetchMode);
+        rbTwoCalls = findViewById(R.id.rbTwoCalls);
+        rbOneCall = findViewById(R.id.rbOneCall);
     }
     
     /**
@@ -65,6 +71,12 @@ public class SettingsActivity extends AppCompatActivity {
         } else {
             rbFahrenheit.setChecked(true);
         }
+        
+        if (settingsManager.getFetchMode() == WeatherApiClient.FetchMode.ONE_CALL) {
+            rbOneCall.setChecked(true);
+        } else {
+            rbTwoCalls.setChecked(true);
+        }
     }
     
     /**
@@ -79,6 +91,15 @@ public class SettingsActivity extends AppCompatActivity {
                 settingsManager.setTemperatureUnit(SettingsManager.UNIT_FAHRENHEIT);
             }
         });
+        
+        // RadioGroup listener - save fetch mode preference
+        rgFetchMode.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.rbOneCall) {
+                settingsManager.setFetchMode(WeatherApiClient.FetchMode.ONE_CALL);
+            } else if (checkedId == R.id.rbTwoCalls) {
+                settingsManager.setFetchMode(WeatherApiClient.FetchMode.TWO_CALLS);
+            }
+        });
     }
     
     // ==================== Lifecycle ======================================
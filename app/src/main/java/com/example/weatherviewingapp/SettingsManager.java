@@ -5,16 +5,19 @@ import android.content.SharedPreferences;
 
 /**
  * Helper class to manage SharedPreferences (Ch. 7.a)
- * Stores: Temperature unit (C/F), default city, cached weather data, last update time
+ * Stores: Temperature unit (C/F), default city, cached weather data, last update time,
+ * fetch mode (two calls / One Call)
  */
 public class SettingsManager {
     private static final String PREF_NAME = "WeatherAppPreferences";
     private static final String KEY_TEMPERATURE_UNIT = "temperature_unit";
     private static final String KEY_DEFAULT_CITY = "default_city";
-    private static final String KEY_CACHED_TEMP = "cached_temp";
+    private static final String KEY_CACHED_TEMP = "cached_temp"; // old formatted "%.1f°C" string, no longer written
+    private static final String KEY_CACHED_TEMP_CELSIUS = "cached_temp_celsius";
     private static final String KEY_CACHED_CONDITION = "cached_condition";
     private static final String KEY_CACHED_CITY = "cached_city";
     private static final String KEY_LAST_UPDATE_TIME = "last_update_time";
+    private static final String KEY_FETCH_MODE = "fetch_mode";
     
     // Temperature units
     public static final String UNIT_CELSIUS = "C";
@@ -51,6 +54,28 @@ public class SettingsManager {
         return UNIT_CELSIUS.equals(getTemperatureUnit());
     }
     
+    // ==================== Fetch Mode ====================
+    
+    /**
+     * Set how a place is loaded (see WeatherApiClient.FetchMode)
+     */
+    public void setFetchMode(WeatherApiClient.FetchMode mode) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        editor.putString(KEY_FETCH_MODE, mode.name());
+        editor.apply();
+    }
+    
+    /**
+     * Get fetch mode (default: two calls - One Call needs its own subscription)
+     */
+    public WeatherApiClient.FetchMode getFetchMode() {
+        String mode = sharedPreferences.getString(KEY_FETCH_MODE, null);
+        if (WeatherApiClient.FetchMode.ONE_CALL.name().equals(mode)) {
+            return WeatherApiClient.FetchMode.ONE_CALL;
+        }
+        return WeatherApiClient.FetchMode.TWO_CALLS;
+    }
+    
     // ==================== Default City ====================
     
     /**
@@ -73,11 +98,13 @@ public class SettingsManager {
     
     /**
      * Cache weather data for offline viewing
+     * @param temperature In Celsius - formatted in the current unit when shown
      */
-    public void cacheWeatherData(String city, String temperature, String condition) {
+    public void cacheWeatherData(String city, double temperature, String condition) {
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putString(KEY_CACHED_CITY, city);
-        editor.putString(KEY_CACHED_TEMP, temperature);
+        editor.putFloat(KEY_CACHED_TEMP_CELSIUS, (float) temperature);
+        editor.remove(KEY_CACHED_TEMP);
         editor.putString(KEY_CACHED_CONDITION, condition);
         editor.apply();
     }
@@ -90,10 +117,13 @@ public class SettingsManager {
     }
     
     /**
-     * Get cached temperature
+     * Get cached temperature in Celsius (NaN if none)
      */
-    public String getCachedTemperature() {
-        return sharedPreferences.getString(KEY_CACHED_TEMP, "--");
+    public double getCachedTemperature() {
+        if (!sharedPreferences.contains(KEY_CACHED_TEMP_CELSIUS)) {
+            return Double.NaN;
+        }
+        return sharedPreferences.getFloat(KEY_CACHED_TEMP_CELSIUS, 0);
     }
     
     /**
@@ -135,6 +165,7 @@ public class SettingsManager {
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.remove(KEY_CACHED_CITY);
         editor.remove(KEY_CACHED_TEMP);
+        editor.remove(KEY_CACHED_TEMP_CELSIUS);
         editor.remove(KEY_CACHED_CONDITION);
         editor.remove(KEY_LAST_UPDATE_TIME);
         editor.apply();
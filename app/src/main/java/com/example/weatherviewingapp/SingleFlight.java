@@ -0,0 +1,186 @@
+package com.example.weatherviewingapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical in-flight requests
+ *
+ * The first caller for a key starts the work on NetworkExecutor; callers that
+ * arrive with the same key while it is still running attach to it and all get
+ * the same result. Each caller gets its own Future: cancelling it only detaches
+ * that caller, and the shared work is cancelled once nobody is waiting.
+ */
+public class SingleFlight<T> {
+
+    private final Map<String, Call> calls = new HashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    /**
+     * Run work for a key, or join the request already running for it
+     *
+     * @param key Endpoint + normalized parameters
+     * @param lane Executor lane (used only if a new request is started)
+     * @param work Work to run
+     * @param callback Main-thread callback for this caller
+     */
+    public Future<T> execute(String key, NetworkExecutor.Lane lane, Callable<T> work,
+                             NetworkExecutor.Callback<T> callback) {
+        synchronized (calls) {
+            Call call = calls.get(key);
+            if (call != null) {
+                joined.incrementAndGet();
+                return call.attach(callback);
+            }
+            call = new Call(key);
+            Member member = call.attach(callback);
+            calls.put(key, call);
+            // Callbacks are posted to the main thread, so starting under the lock is safe
+            call.task = NetworkExecutor.getInstance().submit(lane, work, call);
+            started.incrementAndGet();
+            return member;
+        }
+    }
+
+    /**
+     * Requests actually sent
+     */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * Callers that attached to a request already in flight
+     */
+    public long getJoinedCount() {
+        return joined.get();
+    }
+
+    /**
+     * One shared request and everyone waiting for it
+     */
+    private class Call implements NetworkExecutor.Callback<T> {
+        private final String key;
+        private final List<Member> members = new ArrayList<>();
+        private Future<T> task;
+
+        Call(String key) {
+            this.key = key;
+        }
+
+        Member attach(NetworkExecutor.Callback<T> callback) {
+            Member member = new Member(this, callback);
+            members.add(member);
+            return member;
+        }
+
+        /**
+         * Called with the calls lock held
+         */
+        void detach(Member member) {
+            members.remove(member);
+            if (members.isEmpty()) {
+                if (calls.get(key) == this) {
+                    calls.remove(key);
+                }
+                task.cancel(true);
+            }
+        }
+
+        private List<Member> finish() {
+            synchronized (calls) {
+                if (calls.get(key) == this) {
+                    calls.remove(key);
+                }
+                return new ArrayList<>(members);
+            }
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            for (Member member : finish()) {
+                member.complete(result, null);
+            }
+        }
+
+        @Override
+        public void onError(Exception error) {
+            for (Member member : finish()) {
+                member.complete(null, error);
+            }
+        }
+    }
+
+    /**
+     * Handle given to one caller
+     */
+    private class Member implements Future<T> {
+        private final Call call;
+        private final NetworkExecutor.Callback<T> callback;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        Member(Call call, NetworkExecutor.Callback<T> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+
+        void complete(T result, Exception error) {
+            if (cancelled) {
+                return;
+            }
+            done = true;
+            if (callback == null) {
+                return;
+            }
+            if (error == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onError(error);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (calls) {
+                if (done || cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                call.detach(this);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            return call.task.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return call.task.get(timeout, unit);
+        }
+    }
+}
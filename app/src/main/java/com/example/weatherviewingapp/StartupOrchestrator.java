@@ -0,0 +1,264 @@
+package com.example.weatherviewingapp;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cold-start work, started from WeatherApp.onCreate() on background threads
+ *
+ * While MainActivity inflates its layout, these stages run in parallel:
+ * - prefs: load SettingsManager's and QuotaGovernor's SharedPreferences
+ *   (the first read would otherwise block the main thread on the file)
+ * - database: open the shared DatabaseHelper connection (runs migrations)
+ * - http: DNS + TCP + TLS to the API host, left in the connection pool
+ * - snapshot: look up the default city's saved place and decode its cached
+ *   weather (after prefs + database), handed to MainActivity as LaunchData
+ * - jobs: schedule PrefetchJobService (a binder call)
+ *
+ * Each stage's start offset (from process start) and duration are recorded,
+ * plus the first frame, for the log and the debug screen.
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = "Startup";
+
+    private static final int THREADS = 3;
+
+    private static volatile StartupOrchestrator instance;
+
+    private final Context context;
+    private final long processStart; // SystemClock.elapsedRealtime()
+    private final long createdAt;
+    private final List<Stage> stages = new ArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long firstFrameAt;
+    private volatile Future<?> launchStage;
+    private LaunchData launchData; // until taken by the launch screen, guarded by this
+    private volatile boolean launchDataTaken;
+
+    /**
+     * Start the warm-up stages (once per process)
+     */
+    public static void start(Context context) {
+        if (instance != null) {
+            return;
+        }
+        synchronized (StartupOrchestrator.class) {
+            if (instance == null) {
+                instance = new StartupOrchestrator(context.getApplicationContext());
+                instance.run();
+            }
+        }
+    }
+
+    /**
+     * @return the orchestrator, or null if start() was not called
+     */
+    public static StartupOrchestrator getInstance() {
+        return instance;
+    }
+
+    private StartupOrchestrator(Context context) {
+        this.context = context;
+        this.processStart = Process.getStartElapsedRealtime();
+        this.createdAt = SystemClock.elapsedRealtime();
+    }
+
+    private void run() {
+        final AtomicInteger threadCount = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "startup-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        final Future<?> prefs = submit(executor, "prefs", () -> {
+            new SettingsManager(context).getDefaultCity(); // blocks until the file is loaded
+            QuotaGovernor.init(context);
+            HttpDiskCache.init(context);
+        });
+        final Future<?> database = submit(executor, "database",
+                () -> DatabaseHelper.getInstance(context).getWritableDatabase());
+        submit(executor, "http", WeatherApiClient::warmUp);
+        launchStage = submit(executor, "snapshot", () -> {
+            try {
+                prefs.get();
+                database.get();
+            } catch (Exception e) {
+                return; // the failed stage is already logged
+            }
+            String city = new SettingsManager(context).getDefaultCity();
+            if (city == null || city.isEmpty()) {
+                return;
+            }
+            LaunchData data = LaunchData.read(DatabaseHelper.getInstance(context), city);
+            synchronized (this) {
+                launchData = data;
+            }
+        });
+        submit(executor, "jobs", () -> PrefetchJobService.schedule(context));
+        executor.shutdown(); // threads end when the stages are done
+    }
+
+    /**
+     * The snapshot stage's result for the launch screen, waiting for the stage
+     * if it is still running. Handed over once. Blocking - call from a
+     * background thread.
+     *
+     * @return null if there is none for this city (not started, failed,
+     *         another city or already taken)
+     */
+    public static LaunchData takeLaunchData(String city) {
+        StartupOrchestrator orchestrator = instance;
+        if (orchestrator == null || orchestrator.launchStage == null) {
+            return null;
+        }
+        try {
+            orchestrator.launchStage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+        LaunchData data;
+        synchronized (orchestrator) {
+            data = orchestrator.launchData;
+            orchestrator.launchData = null;
+        }
+        if (data == null || !data.city.equals(city)) {
+            return null;
+        }
+        orchestrator.launchDataTaken = true;
+        return data;
+    }
+
+    private Future<?> submit(ExecutorService executor, String name, Runnable work) {
+        final Stage stage = new Stage(name);
+        synchronized (stages) {
+            stages.add(stage);
+        }
+        pending.incrementAndGet();
+        return executor.submit(() -> {
+            stage.start = SystemClock.elapsedRealtime();
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                stage.error = e.toString();
+                Log.w(TAG, name + " failed", e);
+                throw e;
+            } finally {
+                stage.end = SystemClock.elapsedRealtime();
+                if (pending.decrementAndGet() == 0) {
+                    Log.d(TAG, dumpStats());
+                }
+            }
+        });
+    }
+
+    /**
+     * Record the first frame of the launch screen (call from its onCreate())
+     */
+    public static void reportFirstFrame(final View root) {
+        final StartupOrchestrator orchestrator = instance;
+        if (orchestrator == null || orchestrator.firstFrameAt != 0) {
+            return;
+        }
+        root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                root.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (orchestrator.firstFrameAt == 0) {
+                    orchestrator.firstFrameAt = SystemClock.elapsedRealtime();
+                    Log.d(TAG, "First frame at +" + (orchestrator.firstFrameAt - orchestrator.processStart) + "ms");
+                }
+                return true;
+            }
+        });
+    }
+
+    // ==================== Stats ====================
+
+    /**
+     * Timing of every stage, in ms from process start
+     */
+    public String dumpStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "Application.onCreate at +%d ms\n", createdAt - processStart));
+        synchronized (stages) {
+            for (Stage stage : stages) {
+                if (stage.start == 0) {
+                    sb.append(String.format(Locale.US, "  %-9s queued\n", stage.name));
+                } else if (stage.end == 0) {
+                    sb.append(String.format(Locale.US, "  %-9s +%d ms, running\n",
+                            stage.name, stage.start - processStart));
+                } else {
+                    sb.append(String.format(Locale.US, "  %-9s +%d ms, took %d ms%s\n",
+                            stage.name, stage.start - processStart, stage.end - stage.start,
+                            stage.error != null ? " (failed: " + stage.error + ")" : ""));
+                }
+            }
+        }
+        if (firstFrameAt != 0) {
+            sb.append(String.format(Locale.US, "First frame at +%d ms\n", firstFrameAt - processStart));
+        }
+        sb.append(launchDataTaken ? "Snapshot handed to the launch screen\n" : "Snapshot not used\n");
+        return sb.toString();
+    }
+
+    /**
+     * What a screen needs to show a city before its first request: the saved
+     * place (to load it by coordinates) and the cached weather + forecast
+     */
+    public static class LaunchData {
+        public final String city;
+        public final Location place; // saved location with that name, null if none
+        public final WeatherApiClient.Snapshot snapshot;
+
+        LaunchData(String city, Location place, WeatherApiClient.Snapshot snapshot) {
+            this.city = city;
+            this.place = place;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Look the city up in the database and read its cached snapshot (blocking, no network)
+         */
+        public static LaunchData read(DatabaseHelper database, String city) {
+            Location place = database.findLocationByName(city);
+            WeatherApiClient.Snapshot snapshot = place != null
+                    ? WeatherApiClient.requestCachedSnapshot(place.getLatitude(), place.getLongitude())
+                    : WeatherApiClient.requestCachedSnapshot(city);
+            return new LaunchData(city, place, snapshot);
+        }
+    }
+
+    /**
+     * One warm-up stage (times are SystemClock.elapsedRealtime(), 0 = not yet)
+     */
+    private static class Stage {
+        final String name;
+        volatile long start;
+        volatile long end;
+        volatile String error;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+}
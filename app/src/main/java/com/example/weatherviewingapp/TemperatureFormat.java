@@ -0,0 +1,52 @@
+package com.example.weatherviewingapp;
+
+import java.util.Locale;
+
+/**
+ * Temperature text in the user's unit
+ *
+ * Models and caches always hold the API's metric values (°C, requested with
+ * units=metric) and never a converted or formatted temperature. Conversion
+ * happens here, at render time, so switching C/F in Settings only needs the
+ * screen to render what it already has.
+ */
+public final class TemperatureFormat {
+
+    private final boolean celsius;
+
+    public TemperatureFormat(boolean celsius) {
+        this.celsius = celsius;
+    }
+
+    /**
+     * Format for the unit currently chosen in Settings
+     */
+    public static TemperatureFormat from(SettingsManager settings) {
+        return new TemperatureFormat(settings.isCelsius());
+    }
+
+    public boolean isCelsius() {
+        return celsius;
+    }
+
+    /**
+     * Value in the display unit
+     */
+    public double convert(double celsiusValue) {
+        return celsius ? celsiusValue : celsiusValue * 9 / 5 + 32;
+    }
+
+    /**
+     * e.g. "28.5°C" / "83.3°F"
+     */
+    public String withUnit(double celsiusValue) {
+        return String.format(Locale.getDefault(), celsius ? "%.1f°C" : "%.1f°F", convert(celsiusValue));
+    }
+
+    /**
+     * e.g. "29°" (compact, for details and lists)
+     */
+    public String degrees(double celsiusValue) {
+        return String.format(Locale.getDefault(), "%.0f°", convert(celsiusValue));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.weatherviewingapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * How WeatherApiClient sends its GET requests
+ *
+ * HttpTransport is the real one. Tests can plug in another with
+ * WeatherApiClient.setTransport(), or keep HttpTransport and point
+ * WeatherApiClient.setBaseUrl() at a local stub server.
+ */
+public interface Transport {
+
+    /**
+     * Perform a GET request. The caller must close the Response.
+     *
+     * @param url Full URL
+     * @param headers Extra request headers, may be null
+     */
+    Response get(String url, Map<String, String> headers) throws IOException;
+
+    /**
+     * Perform a GET request without extra headers
+     */
+    default Response get(String url) throws IOException {
+        return get(url, null);
+    }
+
+    /**
+     * Resolve a host and open a connection to it ahead of the first request.
+     * Blocking - call from a background thread. Does nothing by default.
+     *
+     * @param baseUrl Scheme + host (+ port) to connect to
+     */
+    default void warmUp(String baseUrl) {
+    }
+
+    /**
+     * Connection / byte counters for the debug screen
+     */
+    String dumpStats();
+
+    /**
+     * HTTP response. Closing it releases the connection.
+     */
+    interface Response extends Closeable {
+        int getCode();
+
+        String getHeader(String name);
+
+        /**
+         * Decompressed response body (error body for non-2xx codes, may be empty)
+         */
+        InputStream getBody() throws IOException;
+
+        /**
+         * Read the whole (decompressed) body
+         */
+        byte[] readBytes() throws IOException;
+
+        /**
+         * Read the whole body as a String
+         */
+        String readString() throws IOException;
+
+        @Override
+        void close();
+    }
+}
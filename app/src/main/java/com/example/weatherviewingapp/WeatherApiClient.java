@@ -1,56 +1,132 @@
 package com.example.weatherviewingapp;
 
-import android.os.AsyncTask;
+import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * Weather API Client using OpenWeatherMap API
- * Uses HttpURLConnection (Java networking) + AsyncTask for background operations
+ * Uses HttpURLConnection (via the shared keep-alive HttpTransport) + NetworkExecutor
+ * for background operations
  * 
- * Note: AsyncTask is deprecated in API 30+, but it's good for learning.
- * Alternative: Use Thread + Handler or modern solutions like Retrofit/Volley
+ * Note: AsyncTask is deprecated in API 30+ and runs everything on one serial
+ * executor, so requests now go through NetworkExecutor priority lanes instead.
+ * Every fetch returns a Future that can be cancelled.
+ * 
+ * Responses are cached on disk (HttpDiskCache) with a freshness time per
+ * endpoint; a fresh entry is served without touching the network.
+ * 
+ * Failed requests are retried with backoff (RetryPolicy) behind a circuit
+ * breaker per endpoint. While an endpoint is failing, the last cached copy is
+ * served instead of an error. Failures reach callbacks as ApiError.
+ * 
+ * A place with known coordinates (a saved Location, a picked suggestion) is
+ * loaded by coordinates on every endpoint, so the forecast is for the same
+ * point as the current weather and OpenWeatherMap never re-geocodes a name.
+ * Coordinate cache keys are rounded to 4 decimals (see coordinatesKey).
+ * 
+ * Parse time and cache outcome of every load are recorded in EndpointMetrics,
+ * next to the transport timings.
+ * 
+ * A place with coordinates can also be loaded with a single One Call request
+ * (FetchMode.ONE_CALL): current weather with the UV index plus the daily
+ * forecast in one round trip.
  */
 public class WeatherApiClient {
     
     private static final String TAG = "WeatherApiClient";
     
     // OpenWeatherMap API (Free tier)
-    // NOTE: You need to register at https://openweathermap.org/api to get your own API key
-    private static final String API_KEY = "c087fa97752f540e360b43023b2d945a"; // Replace with your API key
-    private static final String BASE_URL = "https://api.openweathermap.org/data/2.5/weather";
+    // The key is set in one place: app/build.gradle.kts (override with the owmApiKey Gradle property)
+    private static final String API_KEY = BuildConfig.OWM_API_KEY;
+    // All endpoints are HTTPS on the same host so they share pooled connections.
+    // The host is set in app/build.gradle.kts (owmBaseUrl Gradle property) or by setBaseUrl() in tests.
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final String FORECAST_PATH = "/data/2.5/forecast";
+    private static final String GEOCODING_PATH = "/geo/1.0/direct";
+    private static final String GROUP_PATH = "/data/2.5/group";
+    private static final String ONECALL_PATH = "/data/3.0/onecall";
+    
+    private static volatile String apiBase = BuildConfig.OWM_BASE_URL;
+    private static volatile Transport transport; // null = HttpTransport
+    
+    // Max city ids per group request (OpenWeatherMap limit)
+    public static final int GROUP_MAX_IDS = 20;
+    
+    // Endpoint names (one retry budget / circuit breaker each)
+    static final String ENDPOINT_WEATHER = "weather";
+    static final String ENDPOINT_FORECAST = "forecast";
+    static final String ENDPOINT_GEOCODING = "geocoding";
+    static final String ENDPOINT_GROUP = "group";
+    static final String ENDPOINT_ONECALL = "onecall";
+    
+    // Identical requests in flight are coalesced (shared across all clients)
+    private static final SingleFlight<WeatherData> weatherCalls = new SingleFlight<>();
+    private static final SingleFlight<List<ForecastDay>> forecastCalls = new SingleFlight<>();
+    private static final SingleFlight<OneCall> oneCallCalls = new SingleFlight<>();
+    
+    // ETag / Last-Modified per request key, with the parsed result to reuse on 304
+    private static final ConditionalCache<WeatherData> weatherValidators = new ConditionalCache<>();
+    private static final ConditionalCache<List<ForecastDay>> forecastValidators = new ConditionalCache<>();
+    private static final ConditionalCache<OneCall> oneCallValidators = new ConditionalCache<>();
+    
+    // One Call answered 401: the key has no One Call subscription, use the two endpoints
+    private static volatile boolean oneCallUnavailable;
+    
+    // Stale cached copies served because the API was failing
+    private static final AtomicLong staleServed = new AtomicLong();
+    
+    public WeatherApiClient(Context context) {
+        HttpDiskCache.init(context);
+        QuotaGovernor.init(context);
+    }
     
     /**
      * Interface for callback when API call completes
      */
     public interface WeatherCallback {
         void onSuccess(WeatherData weatherData);
-        void onError(String errorMessage);
+        void onError(ApiError error);
     }
     
     /**
      * Data class to hold weather information - Enhanced with more details
      */
-    public static class WeatherData {
+    public static class WeatherData implements Cloneable {
         // Basic info
+        public long cityId; // OpenWeatherMap city id (0 if unknown)
         public String cityName;
-        public double temperature; // In Celsius
+        public double temperature; // In Celsius (shown in the user's unit by TemperatureFormat)
         public String condition;
         public String description;
         public int weatherId; // For icon mapping
@@ -73,6 +149,10 @@ public class WeatherApiClient {
         public double rain1h; // Rain volume for last 1 hour (mm)
         public double snow1h; // Snow volume for last 1 hour (mm)
         
+        // Age (set on the copy a fetch returns, see withAge())
+        public long savedAt; // when the API last sent or confirmed it, wall clock ms (0 if unknown)
+        public boolean stale; // the API could not be reached - this is an older cached copy
+        
         public WeatherData(String cityName, double temperature, String condition, 
                           String description, int weatherId) {
             this.cityName = cityName;
@@ -83,17 +163,19 @@ public class WeatherApiClient {
         }
         
         /**
-         * Convert Celsius to Fahrenheit
-         */
-        public double getTemperatureInFahrenheit() {
-            return (temperature * 9/5) + 32;
-        }
-        
-        /**
-         * Get feels like in Fahrenheit
+         * Copy carrying its age. Cached instances are shared between callers,
+         * so they are never marked themselves.
          */
-        public double getFeelsLikeInFahrenheit() {
-            return (feelsLike * 9/5) + 32;
+        WeatherData withAge(long savedAt, boolean stale) {
+            WeatherData copy;
+            try {
+                copy = (WeatherData) clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(e);
+            }
+            copy.savedAt = savedAt;
+            copy.stale = stale;
+            return copy;
         }
         
         /**
@@ -111,236 +193,1012 @@ public class WeatherApiClient {
         public double getWindSpeedKmh() {
             return windSpeed * 3.6;
         }
-        
-        /**
-         * Get UV index level description
-         */
-        public String getUvIndexLevel() {
-            if (uvIndex < 3) return "Thấp";
-            if (uvIndex < 6) return "Trung bình";
-            if (uvIndex < 8) return "Cao";
-            if (uvIndex < 11) return "Rất cao";
-            return "Cực cao";
+        
+        /**
+         * Get UV index level description
+         */
+        public String getUvIndexLevel() {
+            if (uvIndex < 3) return "Thấp";
+            if (uvIndex < 6) return "Trung bình";
+            if (uvIndex < 8) return "Cao";
+            if (uvIndex < 11) return "Rất cao";
+            return "Cực cao";
+        }
+    }
+    
+    /**
+     * Forecast data for a single day
+     */
+    public static class ForecastDay {
+        public String date; // Date string (e.g., "2025-11-11")
+        public String dayName; // Day name (e.g., "T2", "T3", "Hôm nay")
+        public int weatherId; // Weather condition ID
+        public double maxTemp; // Max temperature
+        public double minTemp; // Min temperature
+        public String description; // Weather description
+        
+        public ForecastDay(String date, String dayName, int weatherId, 
+                          double maxTemp, double minTemp, String description) {
+            this.date = date;
+            this.dayName = dayName;
+            this.weatherId = weatherId;
+            this.maxTemp = maxTemp;
+            this.minTemp = minTemp;
+            this.description = description;
+        }
+    }
+    
+    /**
+     * One place returned by the geocoding API (geo/1.0/direct)
+     */
+    public static class GeoResult {
+        public String name; // City name (e.g. "Hanoi")
+        public String state; // State / province, may be empty
+        public String country; // Country code (e.g. "VN"), may be empty
+        public double lat;
+        public double lon;
+        
+        public GeoResult(String name, String state, String country, double lat, double lon) {
+            this.name = name;
+            this.state = state;
+            this.country = country;
+            this.lat = lat;
+            this.lon = lon;
+        }
+        
+        /**
+         * Display name: "City, State, Country" (empty parts are skipped)
+         */
+        public String getDisplayName() {
+            String displayName = name;
+            if (state != null && !state.isEmpty()) {
+                displayName += ", " + state;
+            }
+            if (country != null && !country.isEmpty()) {
+                displayName += ", " + country;
+            }
+            return displayName;
+        }
+    }
+    
+    /**
+     * Callback for forecast data
+     */
+    public interface ForecastCallback {
+        void onSuccess(List<ForecastDay> forecastList);
+        void onError(ApiError error);
+    }
+    
+    /**
+     * Current weather + daily forecast from one One Call response
+     */
+    public static class OneCall {
+        public final WeatherData weather; // cityName is empty: One Call has no place name
+        public final List<ForecastDay> forecast;
+        
+        public OneCall(WeatherData weather, List<ForecastDay> forecast) {
+            this.weather = weather;
+            this.forecast = forecast;
+        }
+    }
+    
+    /**
+     * How fetchWeatherAndForecast(lat, lon, ...) loads a place
+     */
+    public enum FetchMode {
+        TWO_CALLS, // /data/2.5/weather + /data/2.5/forecast in parallel (no UV index)
+        ONE_CALL   // /data/3.0/onecall: current + UV + daily in one request
+    }
+    
+    /**
+     * Callback for a combined current weather + forecast load.
+     * Each part is delivered as soon as it arrives; onComplete is called
+     * once both parts have finished (successfully or not).
+     * 
+     * A cancelled load calls nothing more - not even onComplete, since a
+     * cancelled part never reports. End loading state in the part callbacks,
+     * never in onComplete alone.
+     */
+    public interface WeatherLoadCallback {
+        void onWeather(WeatherData weatherData);
+        void onWeatherError(ApiError error);
+        void onForecast(List<ForecastDay> forecastList);
+        void onForecastError(ApiError error);
+        void onComplete(long latencyMillis);
+    }
+    
+    /**
+     * Fetch current weather and 5-day forecast for a city at the same time.
+     * The forecast request does not wait for the current weather response.
+     * @param cityName Name of the city
+     * @param callback Callback to handle each part
+     * @return Future that cancels both requests (then no callback is called, including onComplete)
+     */
+    public Future<Void> fetchWeatherAndForecast(String cityName, WeatherLoadCallback callback) {
+        return fetchBoth(callback, weather -> fetchWeather(cityName, weather),
+                forecast -> fetchForecast(cityName, forecast));
+    }
+    
+    /**
+     * Fetch current weather and 5-day forecast for a point at the same time
+     * (both by coordinates, see fetchWeatherAndForecast(String, ...))
+     */
+    public Future<Void> fetchWeatherAndForecast(double lat, double lon, WeatherLoadCallback callback) {
+        return fetchBoth(callback, weather -> fetchWeatherByCoordinates(lat, lon, weather),
+                forecast -> fetchForecastByCoordinates(lat, lon, forecast));
+    }
+    
+    /**
+     * Fetch current weather and forecast for a point with the given strategy.
+     * ONE_CALL delivers both parts from a single response (same callback
+     * order as TWO_CALLS); if the API key can't use One Call, it falls back
+     * to the two endpoints for the rest of the session.
+     */
+    public Future<Void> fetchWeatherAndForecast(double lat, double lon, FetchMode mode,
+                                                WeatherLoadCallback callback) {
+        if (mode != FetchMode.ONE_CALL || oneCallUnavailable) {
+            return fetchWeatherAndForecast(lat, lon, callback);
+        }
+        final long startTime = SystemClock.elapsedRealtime();
+        String key = "onecall?" + coordinatesKey(lat, lon);
+        Future<OneCall> request = oneCallCalls.execute(key, NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new FetchOneCallTask(key, lat, lon), new NetworkExecutor.Callback<OneCall>() {
+            @Override
+            public void onSuccess(OneCall result) {
+                callback.onWeather(result.weather);
+                callback.onForecast(result.forecast);
+                complete();
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                ApiError apiError = toApiError(ENDPOINT_ONECALL, error);
+                callback.onWeatherError(apiError);
+                callback.onForecastError(apiError);
+                complete();
+            }
+            
+            private void complete() {
+                long latency = SystemClock.elapsedRealtime() - startTime;
+                Log.d(TAG, "One call loaded in " + latency + "ms");
+                callback.onComplete(latency);
+            }
+        });
+        return new CombinedFuture(request);
+    }
+    
+    private Future<Void> fetchBoth(WeatherLoadCallback callback,
+                                   Function<WeatherCallback, Future<WeatherData>> weatherRequest,
+                                   Function<ForecastCallback, Future<List<ForecastDay>>> forecastRequest) {
+        final long startTime = SystemClock.elapsedRealtime();
+        final int[] pending = {2};
+        
+        // Both callbacks run on the main thread, so the counter needs no locking.
+        // The parts are only reachable through the CombinedFuture returned below,
+        // so either both report or the whole load was cancelled (and onComplete
+        // is deliberately skipped).
+        final Runnable partDone = () -> {
+            if (--pending[0] == 0) {
+                long latency = SystemClock.elapsedRealtime() - startTime;
+                Log.d(TAG, "Weather + forecast loaded in " + latency + "ms");
+                callback.onComplete(latency);
+            }
+        };
+        
+        Future<WeatherData> weather = weatherRequest.apply(new WeatherCallback() {
+            @Override
+            public void onSuccess(WeatherData weatherData) {
+                callback.onWeather(weatherData);
+                partDone.run();
+            }
+            
+            @Override
+            public void onError(ApiError error) {
+                callback.onWeatherError(error);
+                partDone.run();
+            }
+        });
+        
+        Future<List<ForecastDay>> forecast = forecastRequest.apply(new ForecastCallback() {
+            @Override
+            public void onSuccess(List<ForecastDay> forecastList) {
+                callback.onForecast(forecastList);
+                partDone.run();
+            }
+            
+            @Override
+            public void onError(ApiError error) {
+                callback.onForecastError(error);
+                partDone.run();
+            }
+        });
+        
+        return new CombinedFuture(weather, forecast);
+    }
+    
+    /**
+     * Fetch weather data for a city
+     * @param cityName Name of the city
+     * @param callback Callback to handle result
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<WeatherData> fetchWeather(String cityName, WeatherCallback callback) {
+        String key = "weather?" + cityKey(cityName);
+        return weatherCalls.execute(key, NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new FetchWeatherTask(key, cityName), weatherResult(callback));
+    }
+    
+    /**
+     * Fetch weather data by coordinates
+     * @param lat Latitude
+     * @param lon Longitude
+     * @param callback Callback to handle result
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<WeatherData> fetchWeatherByCoordinates(double lat, double lon, WeatherCallback callback) {
+        String key = "weather?" + coordinatesKey(lat, lon);
+        return weatherCalls.execute(key, NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new FetchWeatherByCoordinatesTask(key, lat, lon), weatherResult(callback));
+    }
+    
+    /**
+     * Fetch 5-day forecast for a city
+     * @param cityName Name of the city
+     * @param callback Callback to handle result
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<List<ForecastDay>> fetchForecast(String cityName, ForecastCallback callback) {
+        String key = "forecast?" + cityKey(cityName);
+        return forecastCalls.execute(key, NetworkExecutor.Lane.FORECAST,
+                new FetchForecastTask(key, cityName), forecastResult(callback));
+    }
+    
+    /**
+     * Fetch 5-day forecast by coordinates
+     * @param lat Latitude
+     * @param lon Longitude
+     * @param callback Callback to handle result
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<List<ForecastDay>> fetchForecastByCoordinates(double lat, double lon, ForecastCallback callback) {
+        String key = "forecast?" + coordinatesKey(lat, lon);
+        return forecastCalls.execute(key, NetworkExecutor.Lane.FORECAST,
+                new FetchForecastByCoordinatesTask(key, lat, lon), forecastResult(callback));
+    }
+    
+    /**
+     * Last known weather + forecast for a city, however old
+     */
+    public static class Snapshot {
+        public final WeatherData weather; // null if never loaded
+        public final List<ForecastDay> forecast; // null if never loaded
+        public final long savedAt; // when the weather was last fetched or revalidated, 0 if unknown
+        public final boolean fresh; // weather still within its cache TTL
+        
+        Snapshot(WeatherData weather, List<ForecastDay> forecast, long savedAt, boolean fresh) {
+            this.weather = weather;
+            this.forecast = forecast;
+            this.savedAt = savedAt;
+            this.fresh = fresh;
+        }
+    }
+    
+    /**
+     * Callback for a cached snapshot (never fails - missing parts are null)
+     */
+    public interface SnapshotCallback {
+        void onSnapshot(Snapshot snapshot);
+    }
+    
+    /**
+     * Load what the caches hold for a city, without any network request,
+     * so a screen can render it while the real load runs
+     * @param cityName Name of the city (same key as fetchWeatherAndForecast)
+     * @param callback Called on the main thread
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<Snapshot> fetchCachedSnapshot(String cityName, SnapshotCallback callback) {
+        return fetchSnapshot(cityKey(cityName), callback);
+    }
+    
+    /**
+     * Cached snapshot for a point (same keys as fetchWeatherAndForecast(lat, lon, ...))
+     */
+    public Future<Snapshot> fetchCachedSnapshot(double lat, double lon, SnapshotCallback callback) {
+        return fetchSnapshot(coordinatesKey(lat, lon), callback);
+    }
+    
+    private Future<Snapshot> fetchSnapshot(String query, SnapshotCallback callback) {
+        return NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.FOREGROUND_WEATHER,
+                new CachedSnapshotTask(query), new NetworkExecutor.Callback<Snapshot>() {
+            @Override
+            public void onSuccess(Snapshot result) {
+                callback.onSnapshot(result);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onSnapshot(new Snapshot(null, null, 0, false));
+            }
+        });
+    }
+    
+    /**
+     * Current weather for a city (blocking - call from a background thread).
+     * Goes through the same caches as fetchWeather(), so a background job
+     * calling it leaves the result where the screens will look for it.
+     */
+    public static WeatherData requestWeather(String cityName) throws Exception {
+        return new FetchWeatherTask("weather?" + cityKey(cityName), cityName).call();
+    }
+    
+    /**
+     * Current weather by coordinates (blocking, see requestWeather)
+     */
+    public static WeatherData requestWeatherByCoordinates(double lat, double lon) throws Exception {
+        return new FetchWeatherByCoordinatesTask("weather?" + coordinatesKey(lat, lon), lat, lon).call();
+    }
+    
+    /**
+     * 5-day forecast for a city (blocking, see requestWeather)
+     */
+    public static List<ForecastDay> requestForecast(String cityName) throws Exception {
+        return new FetchForecastTask("forecast?" + cityKey(cityName), cityName).call();
+    }
+    
+    /**
+     * 5-day forecast by coordinates (blocking, see requestWeather)
+     */
+    public static List<ForecastDay> requestForecastByCoordinates(double lat, double lon) throws Exception {
+        return new FetchForecastByCoordinatesTask("forecast?" + coordinatesKey(lat, lon), lat, lon).call();
+    }
+    
+    /**
+     * Current weather + forecast in one One Call request (blocking, see requestWeather).
+     * Falls back to the two endpoints if the API key can't use One Call.
+     */
+    public static OneCall requestOneCall(double lat, double lon) throws Exception {
+        return new FetchOneCallTask("onecall?" + coordinatesKey(lat, lon), lat, lon).call();
+    }
+    
+    /**
+     * What the caches hold for a city (blocking, no network - see fetchCachedSnapshot)
+     */
+    public static Snapshot requestCachedSnapshot(String cityName) {
+        return new CachedSnapshotTask(cityKey(cityName)).call();
+    }
+    
+    /**
+     * Cached snapshot for a point (blocking, see requestCachedSnapshot(String))
+     */
+    public static Snapshot requestCachedSnapshot(double lat, double lon) {
+        return new CachedSnapshotTask(coordinatesKey(lat, lon)).call();
+    }
+    
+    /**
+     * Result of a multi-location refresh
+     */
+    public static class RefreshResult {
+        public final Map<Integer, WeatherData> weather = new HashMap<>(); // by Location id
+        public int groupRequests; // group?id= requests sent
+        public int singleLookups; // per-location loads (no city id yet, may come from cache)
+        public int failed; // locations without a result
+    }
+    
+    /**
+     * Callback for a multi-location refresh
+     */
+    public interface RefreshCallback {
+        /**
+         * Weather for the locations that could be loaded
+         */
+        void onRefreshed(RefreshResult result);
+        
+        /**
+         * Nothing could be loaded
+         */
+        void onError(ApiError error);
+    }
+    
+    /**
+     * Refresh current weather for many saved locations at once.
+     * Locations with a city id are packed GROUP_MAX_IDS at a time into group
+     * requests (one round trip per 20 locations); the others are loaded one by
+     * one by coordinates, which also tells us their city id for next time.
+     * Runs on the background lane.
+     * @param locations Saved locations
+     * @param callback Callback to handle result
+     * @return Future that can be cancelled (callback is then not called)
+     */
+    public Future<RefreshResult> refreshLocations(List<Location> locations, RefreshCallback callback) {
+        return NetworkExecutor.getInstance().submit(NetworkExecutor.Lane.BACKGROUND_REFRESH,
+                new RefreshLocationsTask(new ArrayList<>(locations)), new NetworkExecutor.Callback<RefreshResult>() {
+            @Override
+            public void onSuccess(RefreshResult result) {
+                callback.onRefreshed(result);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onError(toApiError(ENDPOINT_GROUP, error));
+            }
+        });
+    }
+    
+    /**
+     * Future over several requests - cancelling it cancels all of them
+     */
+    private static class CombinedFuture implements Future<Void> {
+        private final Future<?>[] parts;
+        
+        CombinedFuture(Future<?>... parts) {
+            this.parts = parts;
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<?> part : parts) {
+                cancelled |= part.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            for (Future<?> part : parts) {
+                if (!part.isCancelled()) return false;
+            }
+            return true;
+        }
+        
+        @Override
+        public boolean isDone() {
+            for (Future<?> part : parts) {
+                if (!part.isDone()) return false;
+            }
+            return true;
+        }
+        
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            for (Future<?> part : parts) {
+                part.get();
+            }
+            return null;
+        }
+        
+        @Override
+        public Void get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Future<?> part : parts) {
+                part.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Shared transport used for every endpoint
+     */
+    public static Transport getTransport() {
+        Transport current = transport;
+        return current != null ? current : HttpTransport.getInstance();
+    }
+    
+    /**
+     * Send every request through another transport (null = back to HttpTransport)
+     */
+    public static void setTransport(Transport replacement) {
+        transport = replacement;
+    }
+    
+    /**
+     * Resolve the API host and open a connection before the first request needs it
+     * (blocking - call from a background thread)
+     */
+    public static void warmUp() {
+        getTransport().warmUp(apiBase);
+    }
+    
+    /**
+     * Scheme + host (+ port) of every endpoint, e.g. "http://127.0.0.1:8080"
+     * for a local stub server (null = back to the build's base URL).
+     * Values kept in memory came from the old server, so they are dropped.
+     */
+    public static void setBaseUrl(String baseUrl) {
+        apiBase = baseUrl != null ? baseUrl : BuildConfig.OWM_BASE_URL;
+        weatherValidators.clear();
+        forecastValidators.clear();
+        oneCallValidators.clear();
+    }
+    
+    /**
+     * Build a geocoding (geo/1.0/direct) URL
+     * @param query City query, e.g. "Hanoi" or "Hanoi,VN"
+     * @param limit Max number of results
+     */
+    public static String buildGeocodingUrl(String query, int limit) {
+        return apiBase + GEOCODING_PATH + "?q=" + encode(query) + "&limit=" + limit + "&appid=" + API_KEY;
+    }
+    
+    /**
+     * Geocoding request (blocking - call from a background thread).
+     * Screens should go through GeocodingService, which caches the results.
+     * @param query City query, e.g. "Hanoi" or "Hanoi,VN"
+     * @param limit Max number of results
+     */
+    public static List<GeoResult> requestGeocoding(String query, int limit) throws IOException {
+        final String url = buildGeocodingUrl(query, limit);
+        return RetryPolicy.DEFAULT.execute(CircuitBreaker.forEndpoint(ENDPOINT_GEOCODING), () -> {
+            try (Transport.Response response = getTransport().get(url)) {
+                if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                    throw ApiError.fromStatus(ENDPOINT_GEOCODING, response.getCode(), response.getHeader("Retry-After"));
+                }
+                return decode(ENDPOINT_GEOCODING, new BodyStream(response, null), WeatherJsonDecoder::decodeGeocoding);
+            }
+        });
+    }
+    
+    /**
+     * Current weather for up to GROUP_MAX_IDS cities in one request (blocking)
+     */
+    static List<WeatherData> requestGroup(List<Long> cityIds) throws IOException {
+        StringBuilder ids = new StringBuilder();
+        for (Long cityId : cityIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(cityId);
+        }
+        final String url = apiBase + GROUP_PATH + "?id=" + ids + "&appid=" + API_KEY + "&units=metric&lang=vi";
+        return RetryPolicy.DEFAULT.execute(CircuitBreaker.forEndpoint(ENDPOINT_GROUP), () -> {
+            try (Transport.Response response = getTransport().get(url)) {
+                if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                    throw ApiError.fromStatus(ENDPOINT_GROUP, response.getCode(), response.getHeader("Retry-After"));
+                }
+                return decode(ENDPOINT_GROUP, new BodyStream(response, null), WeatherJsonDecoder::decodeGroup);
+            }
+        });
+    }
+    
+    /**
+     * Normalized request key for a city query ("  Ha Noi " -> "q=ha noi")
+     */
+    static String cityKey(String cityName) {
+        if (cityName == null) {
+            return "q=";
+        }
+        return "q=" + cityName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Normalized request key for coordinates (4 decimals, about 11 m).
+     * Also used as the query of coordinate requests, so the key always
+     * describes exactly what was asked for.
+     */
+    static String coordinatesKey(double lat, double lon) {
+        // + 0.0 turns -0.0 into 0.0, so a point on the equator has a single key
+        return String.format(Locale.US, "lat=%.4f&lon=%.4f",
+                Math.round(lat * 10000) / 10000.0 + 0.0, Math.round(lon * 10000) / 10000.0 + 0.0);
+    }
+    
+    /**
+     * Coalescing and revalidation stats for the debug screen
+     */
+    public static String dumpRequestStats() {
+        return String.format(Locale.US,
+                "Weather: %d sent, %d coalesced\nForecast: %d sent, %d coalesced\n"
+                        + "One call: %d sent, %d coalesced%s\n"
+                        + "Weather revalidation: %s\nForecast revalidation: %s\nOne call revalidation: %s\n"
+                        + "Stale copies served while the API was failing: %d\n",
+                weatherCalls.getStartedCount(), weatherCalls.getJoinedCount(),
+                forecastCalls.getStartedCount(), forecastCalls.getJoinedCount(),
+                oneCallCalls.getStartedCount(), oneCallCalls.getJoinedCount(),
+                oneCallUnavailable ? " (not available for this key, using two calls)" : "",
+                weatherValidators.dumpStats(), forecastValidators.dumpStats(), oneCallValidators.dumpStats(),
+                staleServed.get())
+                + (HttpDiskCache.getInstance() != null ? HttpDiskCache.getInstance().dumpStats() : "");
+    }
+    
+    /**
+     * Calls made today (UTC) with the app's API key
+     */
+    public static int getCallsToday() {
+        QuotaGovernor governor = QuotaGovernor.getInstance();
+        return governor != null ? governor.getUsedToday(API_KEY) : 0;
+    }
+    
+    /**
+     * Share of weather revalidations answered with 304 (0..1)
+     */
+    public static double getWeatherRevalidationHitRate() {
+        return weatherValidators.getHitRate();
+    }
+    
+    /**
+     * Share of forecast revalidations answered with 304 (0..1)
+     */
+    public static double getForecastRevalidationHitRate() {
+        return forecastValidators.getHitRate();
+    }
+    
+    /**
+     * Decodes a response body
+     */
+    private interface BodyDecoder<T> {
+        T decode(InputStream in) throws IOException;
+    }
+    
+    /**
+     * A value from load() and how old it is
+     */
+    private static final class Loaded<T> {
+        final T value;
+        final long savedAt; // when the API sent or confirmed it, wall clock ms (0 if unknown)
+        final boolean stale; // served from the cache because the API failed
+        
+        Loaded(T value, long savedAt, boolean stale) {
+            this.value = value;
+            this.savedAt = savedAt;
+            this.stale = stale;
+        }
+    }
+    
+    /**
+     * Response body as the decoders see it. Optionally copies every byte read
+     * (for the disk cache), and close() - which the decoders call - leaves the
+     * connection to Response.close() so the socket can still be reused.
+     */
+    private static class BodyStream extends FilterInputStream {
+        private final ByteArrayOutputStream copy;
+        IOException failure; // from the connection, as opposed to the decoder
+        
+        BodyStream(Transport.Response response, ByteArrayOutputStream copy) throws IOException {
+            super(response.getBody());
+            this.copy = copy;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            if (b != -1 && copy != null) {
+                copy.write(b);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read;
+            try {
+                read = super.read(buffer, offset, length);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            if (read > 0 && copy != null) {
+                copy.write(buffer, offset, read);
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes still have to reach the copy
+            byte[] buffer = new byte[(int) Math.min(n, 512)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        /**
+         * Read whatever the decoder left (trailing whitespace) so the copy is the whole body
+         */
+        void finish() throws IOException {
+            if (copy == null) {
+                return;
+            }
+            byte[] buffer = BufferPool.acquireBytes();
+            try {
+                while (read(buffer, 0, buffer.length) != -1) {
+                    // copied
+                }
+            } finally {
+                BufferPool.release(buffer);
+            }
+        }
+        
+        @Override
+        public void close() {
+            // Response.close() drains and releases the connection
+        }
+    }
+    
+    /**
+     * Value from the disk cache while it is fresh, otherwise null.
+     * A stale entry that has validators is loaded into the validator cache,
+     * so the request that follows can revalidate it instead of downloading it.
+     */
+    private static <T> Loaded<T> fromDiskCache(String key, HttpDiskCache.Policy policy,
+                                               ConditionalCache<T> validators, BodyDecoder<T> decoder) {
+        HttpDiskCache diskCache = HttpDiskCache.getInstance();
+        HttpDiskCache.Entry entry = diskCache != null ? diskCache.get(key, policy) : null;
+        if (entry == null) {
+            return null;
+        }
+        boolean fresh = entry.isFresh(policy);
+        if (!fresh && !entry.hasValidators()) {
+            return null;
+        }
+        
+        // Memory copy is parsed from the same body, so reuse it if we have one
+        T value = validators.peek(key);
+        if (value == null) {
+            try {
+                value = decoder.decode(new ByteArrayInputStream(entry.body));
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring bad cache entry for " + key, e);
+                return null;
+            }
+            validators.seed(key, entry.etag, entry.lastModified, value);
+        }
+        return fresh ? new Loaded<>(value, entry.storedAt, false) : null;
+    }
+    
+    /**
+     * Last known value for a key however old it is (memory first, then disk), or null.
+     * Its time comes from the disk entry (0 if only the memory copy is left).
+     */
+    private static <T> Loaded<T> staleFromCache(String key, HttpDiskCache.Policy policy,
+                                                ConditionalCache<T> validators, BodyDecoder<T> decoder) {
+        HttpDiskCache diskCache = HttpDiskCache.getInstance();
+        HttpDiskCache.Entry entry = diskCache != null ? diskCache.get(key, policy) : null;
+        T value = fromEntry(entry, key, validators, decoder);
+        return value != null ? new Loaded<>(value, entry != null ? entry.storedAt : 0, true) : null;
+    }
+    
+    /**
+     * Value of a disk cache entry (memory copy if we have one), or null.
+     * A decoded entry is seeded into the validator cache so the next request can revalidate it.
+     */
+    private static <T> T fromEntry(HttpDiskCache.Entry entry, String key,
+                                   ConditionalCache<T> validators, BodyDecoder<T> decoder) {
+        T value = validators.peek(key);
+        if (value != null || entry == null) {
+            return value;
+        }
+        try {
+            value = decoder.decode(new ByteArrayInputStream(entry.body));
+        } catch (IOException e) {
+            return null;
+        }
+        validators.seed(key, entry.etag, entry.lastModified, value);
+        return value;
+    }
+    
+    /**
+     * Fresh cached value, or a (conditional) request with retries.
+     * If the API is failing, the last cached copy is returned instead of the
+     * error, marked stale so the screen can say so.
+     */
+    private static <T> Loaded<T> load(String endpoint, String key, String url, HttpDiskCache.Policy policy,
+                                      ConditionalCache<T> validators, BodyDecoder<T> decoder) throws IOException {
+        Loaded<T> cached = fromDiskCache(key, policy, validators, decoder);
+        if (cached != null) {
+            EndpointMetrics.forEndpoint(endpoint).recordCache(EndpointMetrics.CacheOutcome.HIT);
+            return cached;
+        }
+        
+        try {
+            T value = RetryPolicy.DEFAULT.execute(CircuitBreaker.forEndpoint(endpoint),
+                    () -> request(endpoint, url, key, validators, decoder));
+            return new Loaded<>(value, System.currentTimeMillis(), false);
+        } catch (ApiError e) {
+            if (e.isTemporary()) {
+                Loaded<T> stale = staleFromCache(key, policy, validators, decoder);
+                if (stale != null) {
+                    Log.w(TAG, "Serving cached " + key + " (" + e.getKind() + ")");
+                    staleServed.incrementAndGet();
+                    EndpointMetrics.forEndpoint(endpoint).recordCache(EndpointMetrics.CacheOutcome.STALE);
+                    return stale;
+                }
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * One attempt: 304 reuses the cached value (downloaded again if it was evicted meanwhile),
+     * 200 is decoded and cached, anything else becomes an ApiError. Never returns null.
+     */
+    private static <T> T request(String endpoint, String url, String key,
+                                 ConditionalCache<T> validators, BodyDecoder<T> decoder) throws IOException {
+        // If-None-Match / If-Modified-Since when we have validators for the key
+        try (Transport.Response response = getTransport().get(url, validators.requestHeaders(key))) {
+            if (response.getCode() != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return downloaded(response, endpoint, key, validators, decoder);
+            }
+            T cached = notModified(key, validators);
+            if (cached != null) {
+                EndpointMetrics.forEndpoint(endpoint).recordCache(EndpointMetrics.CacheOutcome.REVALIDATED);
+                return cached;
+            }
+        }
+        // Evicted by another request while this one was in flight - ask again without validators
+        try (Transport.Response response = getTransport().get(url)) {
+            return downloaded(response, endpoint, key, validators, decoder);
         }
     }
     
     /**
-     * Forecast data for a single day
+     * A 200 is decoded and cached, anything else becomes an ApiError
      */
-    public static class ForecastDay {
-        public String date; // Date string (e.g., "2025-11-11")
-        public String dayName; // Day name (e.g., "T2", "T3", "Hôm nay")
-        public int weatherId; // Weather condition ID
-        public double maxTemp; // Max temperature
-        public double minTemp; // Min temperature
-        public String description; // Weather description
-        
-        public ForecastDay(String date, String dayName, int weatherId, 
-                          double maxTemp, double minTemp, String description) {
-            this.date = date;
-            this.dayName = dayName;
-            this.weatherId = weatherId;
-            this.maxTemp = maxTemp;
-            this.minTemp = minTemp;
-            this.description = description;
+    private static <T> T downloaded(Transport.Response response, String endpoint, String key,
+                                    ConditionalCache<T> validators, BodyDecoder<T> decoder) throws IOException {
+        int responseCode = response.getCode();
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            throw ApiError.fromStatus(endpoint, responseCode, response.getHeader("Retry-After"));
         }
+        return decodeAndCache(response, endpoint, key, validators, decoder);
     }
     
     /**
-     * Callback for forecast data
+     * Decode a 200 response and remember it (validators + disk cache).
+     * The decoder reads the live response stream; the bytes are copied as
+     * they pass so the disk cache gets the body without a second read.
      */
-    public interface ForecastCallback {
-        void onSuccess(List<ForecastDay> forecastList);
-        void onError(String error);
+    private static <T> T decodeAndCache(Transport.Response response, String endpoint, String key,
+                                        ConditionalCache<T> validators, BodyDecoder<T> decoder) throws IOException {
+        ByteArrayOutputStream copy = new ByteArrayOutputStream(BufferPool.BUFFER_SIZE);
+        T value = decode(endpoint, new BodyStream(response, copy), decoder);
+        byte[] body = copy.toByteArray();
+        String etag = response.getHeader("ETag");
+        String lastModified = response.getHeader("Last-Modified");
+        validators.store(key, etag, lastModified, value);
+        HttpDiskCache diskCache = HttpDiskCache.getInstance();
+        if (diskCache != null) {
+            diskCache.put(key, body, etag, lastModified);
+        }
+        return value;
     }
     
     /**
-     * Fetch weather data for a city
-     * @param cityName Name of the city
-     * @param callback Callback to handle result
+     * Decode a response body as it downloads; a body we can't parse is BAD_RESPONSE.
+     * Parse time therefore includes reading the body after the headers.
      */
-    public void fetchWeather(String cityName, WeatherCallback callback) {
-        new FetchWeatherTask(callback).execute(cityName);
+    private static <T> T decode(String endpoint, BodyStream body, BodyDecoder<T> decoder) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            // Cancelled while waiting for the response - nobody will use the result
+            throw new InterruptedIOException("Cancelled before parsing " + endpoint);
+        }
+        EndpointMetrics metrics = EndpointMetrics.forEndpoint(endpoint);
+        metrics.recordCache(EndpointMetrics.CacheOutcome.DOWNLOADED);
+        long start = System.nanoTime();
+        try {
+            T value = decoder.decode(body);
+            body.finish();
+            return value;
+        } catch (IOException e) {
+            if (body.failure != null) {
+                // The connection failed mid-body (timeout, reset) - not a parse error
+                throw body.failure;
+            }
+            throw ApiError.badResponse(endpoint, e);
+        } finally {
+            metrics.parse.record(EndpointMetrics.micros(start));
+        }
     }
     
     /**
-     * Fetch weather data by coordinates
-     * @param lat Latitude
-     * @param lon Longitude
-     * @param callback Callback to handle result
+     * 304 Not Modified - the cached copy is fresh again.
+     * Null if it was evicted meanwhile (the caller must then download it).
+     */
+    private static <T> T notModified(String key, ConditionalCache<T> validators) {
+        T value = validators.notModified(key);
+        HttpDiskCache diskCache = HttpDiskCache.getInstance();
+        if (value != null && diskCache != null) {
+            diskCache.touch(key);
+        }
+        return value;
+    }
+    
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return value; // UTF-8 is always supported
+        }
+    }
+    
+    /**
+     * Adapt a WeatherCallback to the executor callback
      */
-    public void fetchWeatherByCoordinates(double lat, double lon, WeatherCallback callback) {
-        new FetchWeatherByCoordinatesTask(callback).execute(lat, lon);
+    private static NetworkExecutor.Callback<WeatherData> weatherResult(WeatherCallback callback) {
+        return new NetworkExecutor.Callback<WeatherData>() {
+            @Override
+            public void onSuccess(WeatherData result) {
+                callback.onSuccess(result);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onError(toApiError(ENDPOINT_WEATHER, error));
+            }
+        };
     }
     
     /**
-     * Fetch 5-day forecast for a city
-     * @param cityName Name of the city
-     * @param callback Callback to handle result
+     * Adapt a ForecastCallback to the executor callback
      */
-    public void fetchForecast(String cityName, ForecastCallback callback) {
-        new FetchForecastTask(callback).execute(cityName);
+    private static NetworkExecutor.Callback<List<ForecastDay>> forecastResult(ForecastCallback callback) {
+        return new NetworkExecutor.Callback<List<ForecastDay>>() {
+            @Override
+            public void onSuccess(List<ForecastDay> result) {
+                callback.onSuccess(result);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onError(toApiError(ENDPOINT_FORECAST, error));
+            }
+        };
+    }
+    
+    private static ApiError toApiError(String endpoint, Exception error) {
+        if (error instanceof ApiError) {
+            return (ApiError) error;
+        }
+        if (error instanceof IOException) {
+            return ApiError.fromException(endpoint, (IOException) error);
+        }
+        return new ApiError(ApiError.Kind.BAD_RESPONSE, endpoint, 0, -1,
+                error.getMessage() != null ? error.getMessage() : "Unknown error", error);
     }
     
     /**
-     * AsyncTask to perform network operation in background
-     * Params: String (city name)
-     * Progress: Void (no progress update)
-     * Result: WeatherData or null
+     * Background task to fetch current weather by city name
      */
-    private static class FetchWeatherTask extends AsyncTask<String, Void, WeatherData> {
+    private static class FetchWeatherTask implements Callable<WeatherData> {
         
-        private WeatherCallback callback;
-        private String errorMessage;
+        private final String key;
+        private final String cityName;
         
-        FetchWeatherTask(WeatherCallback callback) {
-            this.callback = callback;
+        FetchWeatherTask(String key, String cityName) {
+            this.key = key;
+            this.cityName = cityName;
         }
         
         @Override
-        protected WeatherData doInBackground(String... params) {
-            if (params.length == 0) {
-                errorMessage = "City name is required";
-                return null;
+        public WeatherData call() throws Exception {
+            if (cityName == null || cityName.isEmpty()) {
+                throw ApiError.invalidRequest(ENDPOINT_WEATHER, "City name is required");
             }
             
-            String cityName = params[0];
-            HttpURLConnection connection = null;
-            BufferedReader reader = null;
+            // Build URL
+            String urlString = apiBase + WEATHER_PATH + "?q=" + encode(cityName) + 
+                              "&appid=" + API_KEY + 
+                              "&units=metric" + // Use metric (Celsius)
+                              "&lang=vi"; // Vietnamese descriptions
             
             try {
-                // Build URL
-                String urlString = BASE_URL + "?q=" + cityName + 
-                                  "&appid=" + API_KEY + 
-                                  "&units=metric" + // Use metric (Celsius)
-                                  "&lang=vi"; // Vietnamese descriptions
-                
-                URL url = new URL(urlString);
-                
-                // Open connection
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000); // 10 seconds
-                connection.setReadTimeout(10000);
-                connection.connect();
-                
-                // Check response code
-                int responseCode = connection.getResponseCode();
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    errorMessage = "HTTP Error: " + responseCode;
-                    return null;
-                }
-                
-                // Read response
-                reader = new BufferedReader(
-                    new InputStreamReader(connection.getInputStream())
-                );
-                
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                }
-                
-                // Parse JSON
-                return parseWeatherJson(response.toString());
-                
-            } catch (Exception e) {
+                return loadWeather(key, urlString);
+            } catch (IOException e) {
                 Log.e(TAG, "Error fetching weather", e);
-                errorMessage = e.getMessage();
-                return null;
-                
-            } finally {
-                // Clean up
-                if (connection != null) {
-                    connection.disconnect();
-                }
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error closing reader", e);
-                    }
-                }
-            }
-        }
-        
-        @Override
-        protected void onPostExecute(WeatherData result) {
-            if (result != null) {
-                callback.onSuccess(result);
-            } else {
-                callback.onError(errorMessage != null ? errorMessage : "Unknown error");
+                throw e;
             }
         }
-        
-        /**
-         * Parse JSON response from OpenWeatherMap API - Enhanced with more details
-         */
-        private static WeatherData parseWeatherJson(String jsonString) throws JSONException {
-            JSONObject json = new JSONObject(jsonString);
-            
-            // Basic info
-            String cityName = json.getString("name");
-            
-            // Main weather data
-            JSONObject main = json.getJSONObject("main");
-            double temperature = main.getDouble("temp");
-            double feelsLike = main.optDouble("feels_like", temperature);
-            int humidity = main.optInt("humidity", 0);
-            int pressure = main.optInt("pressure", 0);
-            
-            // Weather condition
-            JSONArray weatherArray = json.getJSONArray("weather");
-            JSONObject weather = weatherArray.getJSONObject(0);
-            String condition = weather.getString("main");
-            String description = weather.getString("description");
-            int weatherId = weather.getInt("id");
-            
-            // Wind data
-            JSONObject wind = json.optJSONObject("wind");
-            double windSpeed = wind != null ? wind.optDouble("speed", 0) : 0;
-            int windDeg = wind != null ? wind.optInt("deg", 0) : 0;
-            
-            // Clouds
-            JSONObject clouds = json.optJSONObject("clouds");
-            int cloudiness = clouds != null ? clouds.optInt("all", 0) : 0;
-            
-            // Visibility
-            int visibility = json.optInt("visibility", 0);
-            
-            // Sun times (sys object)
-            JSONObject sys = json.optJSONObject("sys");
-            long sunrise = sys != null ? sys.optLong("sunrise", 0) : 0;
-            long sunset = sys != null ? sys.optLong("sunset", 0) : 0;
-            
-            // Rain (if exists)
-            JSONObject rain = json.optJSONObject("rain");
-            double rain1h = rain != null ? rain.optDouble("1h", 0) : 0;
-            
-            // Snow (if exists)
-            JSONObject snow = json.optJSONObject("snow");
-            double snow1h = snow != null ? snow.optDouble("1h", 0) : 0;
-            
-            // Create WeatherData object
-            WeatherData data = new WeatherData(cityName, temperature, condition, description, weatherId);
-            
-            // Set extended details
-            data.feelsLike = feelsLike;
-            data.humidity = humidity;
-            data.windSpeed = windSpeed;
-            data.windDeg = windDeg;
-            data.pressure = pressure;
-            data.visibility = visibility;
-            data.clouds = cloudiness;
-            data.sunrise = sunrise;
-            data.sunset = sunset;
-            data.rain1h = rain1h;
-            data.snow1h = snow1h;
-            data.uvIndex = 0; // UV not in current weather API, need separate call
-            
-            return data;
-        }
     }
     
     /**
@@ -406,179 +1264,373 @@ public class WeatherApiClient {
         }
     }    
     /**
-     * AsyncTask to fetch weather by coordinates
+     * Background task to fetch weather by coordinates
      */
-    private static class FetchWeatherByCoordinatesTask extends AsyncTask<Double, Void, WeatherData> {
+    private static class FetchWeatherByCoordinatesTask implements Callable<WeatherData> {
         
-        private WeatherCallback callback;
-        private String errorMessage;
+        private final String key;
+        private final double lat;
+        private final double lon;
         
-        FetchWeatherByCoordinatesTask(WeatherCallback callback) {
-            this.callback = callback;
+        FetchWeatherByCoordinatesTask(String key, double lat, double lon) {
+            this.key = key;
+            this.lat = lat;
+            this.lon = lon;
         }
         
         @Override
-        protected WeatherData doInBackground(Double... params) {
-            if (params.length < 2) {
-                errorMessage = "Latitude and Longitude are required";
-                return null;
+        public WeatherData call() throws Exception {
+            // Build URL with coordinates
+            String urlString = apiBase + WEATHER_PATH + "?" + coordinatesKey(lat, lon) + 
+                               "&appid=" + API_KEY + 
+                               "&units=metric" + // Use metric (Celsius)
+                               "&lang=vi"; // Vietnamese descriptions
+            
+            return loadWeather(key, urlString);
+        }
+    }
+    
+    /**
+     * Current weather through the caches, as a copy stamped with its age
+     */
+    private static WeatherData loadWeather(String key, String urlString) throws IOException {
+        Loaded<WeatherData> loaded = load(ENDPOINT_WEATHER, key, urlString, HttpDiskCache.Policy.WEATHER,
+                weatherValidators, WeatherJsonDecoder::decodeWeather);
+        return loaded.value.withAge(loaded.savedAt, loaded.stale);
+    }
+    
+    /**
+     * Background task to fetch 5-day weather forecast
+     */
+    private static class FetchForecastTask implements Callable<List<ForecastDay>> {
+        private final String key;
+        private final String cityName;
+        
+        FetchForecastTask(String key, String cityName) {
+            this.key = key;
+            this.cityName = cityName;
+        }
+        
+        @Override
+        public List<ForecastDay> call() throws Exception {
+            if (cityName == null || cityName.isEmpty()) {
+                throw ApiError.invalidRequest(ENDPOINT_FORECAST, "City name is required");
             }
             
-            double lat = params[0];
-            double lon = params[1];
+            // Use forecast API endpoint
+            String urlString = apiBase + FORECAST_PATH + "?q=" + encode(cityName) + 
+                               "&appid=" + API_KEY + 
+                               "&units=metric" + 
+                               "&lang=vi";
             
-            try {
-                // Build URL with coordinates
-                String urlString = BASE_URL + "?lat=" + lat + "&lon=" + lon + 
-                                   "&appid=" + API_KEY + 
-                                   "&units=metric" + // Use metric (Celsius)
-                                   "&lang=vi"; // Vietnamese descriptions
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-                
-                int responseCode = connection.getResponseCode();
-                
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
+            return loadForecast(key, urlString);
+        }
+    }
+    
+    /**
+     * Background task to fetch 5-day forecast by coordinates
+     */
+    private static class FetchForecastByCoordinatesTask implements Callable<List<ForecastDay>> {
+        private final String key;
+        private final double lat;
+        private final double lon;
+        
+        FetchForecastByCoordinatesTask(String key, double lat, double lon) {
+            this.key = key;
+            this.lat = lat;
+            this.lon = lon;
+        }
+        
+        @Override
+        public List<ForecastDay> call() throws Exception {
+            String urlString = apiBase + FORECAST_PATH + "?" + coordinatesKey(lat, lon) + 
+                               "&appid=" + API_KEY + 
+                               "&units=metric" + 
+                               "&lang=vi";
+            
+            return loadForecast(key, urlString);
+        }
+    }
+    
+    /**
+     * Forecast through the caches; an empty forecast is an error
+     */
+    private static List<ForecastDay> loadForecast(String key, String urlString) throws IOException {
+        List<ForecastDay> forecastList;
+        try {
+            forecastList = load(ENDPOINT_FORECAST, key, urlString, HttpDiskCache.Policy.FORECAST,
+                    forecastValidators, WeatherJsonDecoder::decodeForecast).value;
+        } catch (IOException e) {
+            Log.e(TAG, "Error fetching forecast", e);
+            throw e;
+        }
+        
+        if (forecastList.isEmpty()) {
+            throw new ApiError(ApiError.Kind.BAD_RESPONSE, ENDPOINT_FORECAST, HttpURLConnection.HTTP_OK, -1,
+                    "No forecast data available", null);
+        }
+        return forecastList;
+    }
+    
+    /**
+     * Background task to load current weather + daily forecast with One Call
+     */
+    private static class FetchOneCallTask implements Callable<OneCall> {
+        private final String key;
+        private final double lat;
+        private final double lon;
+        
+        FetchOneCallTask(String key, double lat, double lon) {
+            this.key = key;
+            this.lat = lat;
+            this.lon = lon;
+        }
+        
+        @Override
+        public OneCall call() throws Exception {
+            if (!oneCallUnavailable) {
+                // Minutely, hourly and alerts are not shown anywhere - don't download them
+                String urlString = apiBase + ONECALL_PATH + "?" + coordinatesKey(lat, lon) +
+                                   "&exclude=minutely,hourly,alerts" +
+                                   "&appid=" + API_KEY +
+                                   "&units=metric" +
+                                   "&lang=vi";
+                try {
+                    // Current weather is in it, so it is fresh as long as a weather response
+                    Loaded<OneCall> loaded = load(ENDPOINT_ONECALL, key, urlString, HttpDiskCache.Policy.WEATHER,
+                            oneCallValidators, WeatherJsonDecoder::decodeOneCall);
+                    return new OneCall(loaded.value.weather.withAge(loaded.savedAt, loaded.stale),
+                            loaded.value.forecast);
+                } catch (ApiError e) {
+                    if (e.getKind() != ApiError.Kind.UNAUTHORIZED) {
+                        throw e;
                     }
-                    
-                    reader.close();
-                    connection.disconnect();
-                    
-                    return FetchWeatherTask.parseWeatherJson(response.toString());
-                } else if (responseCode == 404) {
-                    errorMessage = "Location not found";
-                } else if (responseCode == 401) {
-                    errorMessage = "Invalid API key";
-                } else {
-                    errorMessage = "Server error: " + responseCode;
+                    // One Call 3.0 needs its own subscription - a 2.5 key gets 401
+                    Log.w(TAG, "One Call not available for this API key, using two calls");
+                    oneCallUnavailable = true;
                 }
-                
-            } catch (IOException e) {
-                errorMessage = "Network error: " + e.getMessage();
-            } catch (Exception e) {
-                errorMessage = "Error: " + e.getMessage();
             }
-            
-            return null;
+            return new OneCall(requestWeatherByCoordinates(lat, lon), requestForecastByCoordinates(lat, lon));
+        }
+    }
+    
+    /**
+     * Background task to read a city's cached weather + forecast (no network)
+     */
+    private static class CachedSnapshotTask implements Callable<Snapshot> {
+        private final String query; // cityKey() or coordinatesKey()
+        
+        CachedSnapshotTask(String query) {
+            this.query = query;
         }
         
         @Override
-        protected void onPostExecute(WeatherData weatherData) {
-            if (weatherData != null) {
-                callback.onSuccess(weatherData);
-            } else {
-                callback.onError(errorMessage != null ? errorMessage : "Unknown error");
+        public Snapshot call() {
+            HttpDiskCache diskCache = HttpDiskCache.getInstance();
+            String weatherKey = "weather?" + query;
+            String forecastKey = "forecast?" + query;
+            HttpDiskCache.Entry weatherEntry = diskCache != null
+                    ? diskCache.get(weatherKey, HttpDiskCache.Policy.WEATHER) : null;
+            HttpDiskCache.Entry forecastEntry = diskCache != null
+                    ? diskCache.get(forecastKey, HttpDiskCache.Policy.FORECAST) : null;
+            
+            // A point loaded with One Call has its newest copy under its own key
+            String oneCallKey = "onecall?" + query;
+            HttpDiskCache.Entry oneCallEntry = diskCache != null && query.startsWith("lat=")
+                    ? diskCache.get(oneCallKey, HttpDiskCache.Policy.WEATHER) : null;
+            if (oneCallEntry != null && (weatherEntry == null || oneCallEntry.storedAt > weatherEntry.storedAt)) {
+                OneCall oneCall = fromEntry(oneCallEntry, oneCallKey,
+                        oneCallValidators, WeatherJsonDecoder::decodeOneCall);
+                if (oneCall != null) {
+                    return new Snapshot(oneCall.weather, oneCall.forecast, oneCallEntry.storedAt,
+                            oneCallEntry.isFresh(HttpDiskCache.Policy.WEATHER));
+                }
             }
+            
+            WeatherData weather = fromEntry(weatherEntry, weatherKey,
+                    weatherValidators, WeatherJsonDecoder::decodeWeather);
+            List<ForecastDay> forecast = fromEntry(forecastEntry, forecastKey,
+                    forecastValidators, WeatherJsonDecoder::decodeForecast);
+            return new Snapshot(weather, forecast,
+                    weatherEntry != null ? weatherEntry.storedAt : 0,
+                    weatherEntry != null && weatherEntry.isFresh(HttpDiskCache.Policy.WEATHER));
         }
     }
     
     /**
-     * AsyncTask to fetch 5-day weather forecast
+     * Background task to refresh many saved locations (group requests + per-location fallback)
      */
-    private class FetchForecastTask extends AsyncTask<String, Void, List<ForecastDay>> {
-        private ForecastCallback callback;
-        private String errorMessage;
+    private static class RefreshLocationsTask implements Callable<RefreshResult> {
+        private final List<Location> locations;
         
-        public FetchForecastTask(ForecastCallback callback) {
-            this.callback = callback;
+        RefreshLocationsTask(List<Location> locations) {
+            this.locations = locations;
         }
         
         @Override
-        protected List<ForecastDay> doInBackground(String... params) {
-            if (params.length == 0) {
-                errorMessage = "City name is required";
-                return null;
+        public RefreshResult call() throws Exception {
+            RefreshResult result = new RefreshResult();
+            List<Location> withId = new ArrayList<>();
+            List<Location> single = new ArrayList<>();
+            for (Location location : locations) {
+                if (location.getCityId() > 0) {
+                    withId.add(location);
+                } else {
+                    single.add(location);
+                }
             }
             
-            String cityName = params[0];
-            List<ForecastDay> forecastList = new ArrayList<>();
-            
-            try {
-                // Use forecast API endpoint
-                String urlString = "https://api.openweathermap.org/data/2.5/forecast?q=" + cityName + 
-                                   "&appid=" + API_KEY + 
-                                   "&units=metric" + 
-                                   "&lang=vi";
-                
-                URL url = new URL(urlString);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(10000);
-                connection.setReadTimeout(10000);
-                connection.connect();
-                
-                int responseCode = connection.getResponseCode();
+            ApiError lastError = null;
+            for (int start = 0; start < withId.size(); start += GROUP_MAX_IDS) {
+                List<Location> chunk = withId.subList(start, Math.min(withId.size(), start + GROUP_MAX_IDS));
+                List<Long> cityIds = new ArrayList<>(chunk.size());
+                for (Location location : chunk) {
+                    cityIds.add(location.getCityId());
+                }
                 
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream()));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
+                List<WeatherData> cities;
+                try {
+                    cities = requestGroup(cityIds);
+                    result.groupRequests++;
+                } catch (ApiError e) {
+                    if (e.isTemporary()) {
+                        // API in trouble - one request per location would only make it worse
+                        lastError = e;
+                    } else {
+                        Log.w(TAG, "Group request failed, loading one by one: " + e.getMessage());
+                        single.addAll(chunk);
                     }
-                    
-                    reader.close();
-                    connection.disconnect();
-                    
-                    // Parse forecast JSON
-                    forecastList = parseForecastJson(response.toString());
-                    
-                } else {
-                    errorMessage = "HTTP Error: " + responseCode;
+                    continue;
                 }
                 
-            } catch (Exception e) {
-                e.printStackTrace();
-                errorMessage = "Error: " + e.getMessage();
+                // Split the response back by city id
+                Map<Long, WeatherData> byCityId = new HashMap<>();
+                for (WeatherData city : cities) {
+                    byCityId.put(city.cityId, city);
+                }
+                for (Location location : chunk) {
+                    WeatherData data = byCityId.get(location.getCityId());
+                    if (data != null) {
+                        result.weather.put(location.getId(), data);
+                    } else {
+                        single.add(location); // unknown id - try the coordinates
+                    }
+                }
             }
             
-            return forecastList;
-        }
-        
-        @Override
-        protected void onPostExecute(List<ForecastDay> forecastList) {
-            if (forecastList != null && !forecastList.isEmpty()) {
-                callback.onSuccess(forecastList);
-            } else {
-                callback.onError(errorMessage != null ? errorMessage : "No forecast data available");
+            for (Location location : single) {
+                String key = "weather?" + coordinatesKey(location.getLatitude(), location.getLongitude());
+                try {
+                    result.weather.put(location.getId(), new FetchWeatherByCoordinatesTask(
+                            key, location.getLatitude(), location.getLongitude()).call());
+                    result.singleLookups++;
+                } catch (ApiError e) {
+                    lastError = e;
+                }
+            }
+            
+            result.failed = locations.size() - result.weather.size();
+            Log.d(TAG, "Refreshed " + result.weather.size() + "/" + locations.size() + " locations: "
+                    + result.groupRequests + " group requests, " + result.singleLookups + " single");
+            if (result.weather.isEmpty() && lastError != null) {
+                throw lastError;
             }
+            return result;
         }
     }
     
+    /**
+     * Parse JSON response from OpenWeatherMap API - Enhanced with more details
+     * Legacy tree-based parser - the app uses WeatherJsonDecoder.decodeWeather(),
+     * this one is kept as the baseline for the decoder comparison test.
+     */
+    static WeatherData parseWeatherJson(String jsonString) throws JSONException {
+        JSONObject json = new JSONObject(jsonString);
+        
+        // Basic info
+        String cityName = json.getString("name");
+        
+        // Main weather data
+        JSONObject main = json.getJSONObject("main");
+        double temperature = main.getDouble("temp");
+        double feelsLike = main.optDouble("feels_like", temperature);
+        int humidity = main.optInt("humidity", 0);
+        int pressure = main.optInt("pressure", 0);
+        
+        // Weather condition
+        JSONArray weatherArray = json.getJSONArray("weather");
+        JSONObject weather = weatherArray.getJSONObject(0);
+        String condition = weather.getString("main");
+        String description = weather.getString("description");
+        int weatherId = weather.getInt("id");
+        
+        // Wind data
+        JSONObject wind = json.optJSONObject("wind");
+        double windSpeed = wind != null ? wind.optDouble("speed", 0) : 0;
+        int windDeg = wind != null ? wind.optInt("deg", 0) : 0;
+        
+        // Clouds
+        JSONObject clouds = json.optJSONObject("clouds");
+        int cloudiness = clouds != null ? clouds.optInt("all", 0) : 0;
+        
+        // Visibility
+        int visibility = json.optInt("visibility", 0);
+        
+        // Sun times (sys object)
+        JSONObject sys = json.optJSONObject("sys");
+        long sunrise = sys != null ? sys.optLong("sunrise", 0) : 0;
+        long sunset = sys != null ? sys.optLong("sunset", 0) : 0;
+        
+        // Rain (if exists)
+        JSONObject rain = json.optJSONObject("rain");
+        double rain1h = rain != null ? rain.optDouble("1h", 0) : 0;
+        
+        // Snow (if exists)
+        JSONObject snow = json.optJSONObject("snow");
+        double snow1h = snow != null ? snow.optDouble("1h", 0) : 0;
+        
+        // Create WeatherData object
+        WeatherData data = new WeatherData(cityName, temperature, condition, description, weatherId);
+        data.cityId = json.optLong("id", 0);
+        
+        // Set extended details
+        data.feelsLike = feelsLike;
+        data.humidity = humidity;
+        data.windSpeed = windSpeed;
+        data.windDeg = windDeg;
+        data.pressure = pressure;
+        data.visibility = visibility;
+        data.clouds = cloudiness;
+        data.sunrise = sunrise;
+        data.sunset = sunset;
+        data.rain1h = rain1h;
+        data.snow1h = snow1h;
+        data.uvIndex = 0; // UV not in current weather API, need separate call
+        
+        return data;
+    }
+    
     /**
      * Parse forecast JSON and group by day (get daily min/max)
+     * Legacy tree-based parser - the app uses WeatherJsonDecoder.decodeForecast(),
+     * this one is kept as the baseline for the decoder comparison test.
      */
-    private static List<ForecastDay> parseForecastJson(String jsonString) throws JSONException {
-        List<ForecastDay> forecastList = new ArrayList<>();
-        Map<String, DayData> dayMap = new HashMap<>();
+    static List<ForecastDay> parseForecastJson(String jsonString) throws JSONException {
+        ForecastAccumulator accumulator = new ForecastAccumulator();
         
         JSONObject root = new JSONObject(jsonString);
         JSONArray list = root.getJSONArray("list");
-        
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE", new Locale("vi", "VN"));
-        Calendar calendar = Calendar.getInstance();
+        JSONObject city = root.optJSONObject("city");
+        if (city != null) {
+            accumulator.setTimezoneOffset(city.optLong("timezone"));
+        }
         
         // Process each 3-hour forecast entry
         for (int i = 0; i < list.length(); i++) {
             JSONObject item = list.getJSONObject(i);
             
-            // Get date
-            String dateTime = item.getString("dt_txt"); // "2025-11-10 12:00:00"
-            String date = dateTime.split(" ")[0]; // "2025-11-10"
+            // Get time (UTC seconds - "dt_txt" is a UTC date too, not the city's)
+            long time = item.getLong("dt");
             
             // Get temperature
             JSONObject main = item.getJSONObject("main");
@@ -590,70 +1642,169 @@ public class WeatherApiClient {
             int weatherId = weatherObj.getInt("id");
             String description = weatherObj.getString("description");
             
-            // Group by day
-            if (!dayMap.containsKey(date)) {
-                dayMap.put(date, new DayData());
+            accumulator.addSlot(time, temp, weatherId, description);
+        }
+        
+        return accumulator.build();
+    }
+    
+    /**
+     * Groups 3-hour forecast slots into the place's local days (shared by both forecast parsers)
+     * 
+     * The city's UTC offset ("city.timezone") comes after "list" in the
+     * response, so slots are first buffered in primitive arrays. build() then
+     * makes one pass over them into a fixed array of days indexed by local
+     * calendar day from the first slot - ordered, with no map lookups and no
+     * date parsing per slot.
+     */
+    static class ForecastAccumulator {
+        static final int MAX_DAYS = 5;
+        private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+        private static final long MIDDAY_SECONDS = 12 * 60 * 60;
+        private static final int DEFAULT_SLOTS = 40; // cnt of a full 5-day response
+        
+        private long[] times = new long[DEFAULT_SLOTS]; // dt, UTC seconds
+        private double[] temps = new double[DEFAULT_SLOTS];
+        private int[] weatherIds = new int[DEFAULT_SLOTS];
+        private String[] descriptions = new String[DEFAULT_SLOTS];
+        private int size;
+        private long firstTime = Long.MAX_VALUE;
+        private long timezoneOffset; // seconds east of UTC
+        
+        /**
+         * Add one 3-hour slot
+         * @param time "dt" value, UTC seconds
+         */
+        void addSlot(long time, double temp, int weatherId, String description) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                temps = Arrays.copyOf(temps, capacity);
+                weatherIds = Arrays.copyOf(weatherIds, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
             }
-            
-            DayData dayData = dayMap.get(date);
-            dayData.addTemp(temp);
-            dayData.weatherId = weatherId; // Use first entry's weather
-            dayData.description = description;
+            times[size] = time;
+            temps[size] = temp;
+            weatherIds[size] = weatherId;
+            descriptions[size] = description;
+            size++;
+            firstTime = Math.min(firstTime, time);
+        }
+        
+        /**
+         * UTC offset of the place ("city.timezone"), 0 = group by UTC days
+         */
+        void setTimezoneOffset(long seconds) {
+            timezoneOffset = seconds;
+        }
+        
+        /**
+         * Convert to ForecastDay list (max 5 days, first day first)
+         */
+        List<ForecastDay> build() {
+            return build(System.currentTimeMillis());
         }
         
-        // Convert to ForecastDay list (max 5 days)
-        int count = 0;
-        for (String date : dayMap.keySet()) {
-            if (count >= 5) break;
+        /**
+         * Convert to ForecastDay list, labelling the days relative to nowMillis
+         * (wall clock, ms) in the place's time zone
+         */
+        List<ForecastDay> build(long nowMillis) {
+            List<ForecastDay> forecastList = new ArrayList<>(MAX_DAYS);
+            if (size == 0) {
+                return forecastList;
+            }
             
-            DayData dayData = dayMap.get(date);
+            double[] maxTemps = new double[MAX_DAYS];
+            double[] minTemps = new double[MAX_DAYS];
+            int[] slotCounts = new int[MAX_DAYS];
+            int[] shownSlots = new int[MAX_DAYS]; // slot whose weather represents the day
+            long[] shownDistance = new long[MAX_DAYS]; // its distance from local midday
+            Arrays.fill(maxTemps, Double.NEGATIVE_INFINITY);
+            Arrays.fill(minTemps, Double.POSITIVE_INFINITY);
+            Arrays.fill(shownDistance, Long.MAX_VALUE);
             
-            // Get day name
-            String dayName;
-            if (count == 0) {
-                dayName = "Hôm nay";
-            } else if (count == 1) {
-                dayName = "Ngày mai";
-            } else {
-                // Get day of week (T2, T3, T4, T5, T6, T7, CN)
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                    calendar.setTime(sdf.parse(date));
-                    int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-                    String[] days = {"CN", "T2", "T3", "T4", "T5", "T6", "T7"};
-                    dayName = days[dayOfWeek - 1];
-                } catch (Exception e) {
-                    dayName = date;
+            long firstDay = Math.floorDiv(firstTime + timezoneOffset, SECONDS_PER_DAY);
+            for (int i = 0; i < size; i++) {
+                long localTime = times[i] + timezoneOffset;
+                int day = (int) (Math.floorDiv(localTime, SECONDS_PER_DAY) - firstDay);
+                if (day >= MAX_DAYS) {
+                    continue; // 40 slots reach into a sixth local day
+                }
+                slotCounts[day]++;
+                if (temps[i] > maxTemps[day]) maxTemps[day] = temps[i];
+                if (temps[i] < minTemps[day]) minTemps[day] = temps[i];
+                
+                // The slot nearest midday describes the day best
+                long distance = Math.abs(Math.floorMod(localTime, SECONDS_PER_DAY) - MIDDAY_SECONDS);
+                if (distance < shownDistance[day]) {
+                    shownDistance[day] = distance;
+                    shownSlots[day] = i;
                 }
             }
             
-            forecastList.add(new ForecastDay(
-                date,
-                dayName,
-                dayData.weatherId,
-                dayData.maxTemp,
-                dayData.minTemp,
-                dayData.description
-            ));
+            SimpleDateFormat dateFormat = newDayFormat();
+            long today = localEpochDay(nowMillis, timezoneOffset);
+            for (int day = 0; day < MAX_DAYS; day++) {
+                if (slotCounts[day] == 0) {
+                    continue;
+                }
+                long epochDay = firstDay + day;
+                int slot = shownSlots[day];
+                forecastList.add(new ForecastDay(
+                    formatDay(dateFormat, epochDay),
+                    dayName(epochDay, today),
+                    weatherIds[slot],
+                    maxTemps[day],
+                    minTemps[day],
+                    descriptions[slot]
+                ));
+            }
             
-            count++;
+            return forecastList;
         }
-        
-        return forecastList;
     }
     
+    // Indexed by days since a Sunday (Calendar.DAY_OF_WEEK - 1)
+    private static final String[] WEEKDAY_NAMES = {"CN", "T2", "T3", "T4", "T5", "T6", "T7"};
+    
     /**
-     * Helper class to store daily temperature data
+     * Label of a forecast day: "Hôm nay", "Ngày mai", else T2..T7 / CN.
+     * A forecast fetched before midnight may still start with yesterday.
+     * @param epochDay Local calendar day, in days since 1970-01-01
+     * @param todayEpochDay Today in the same time zone, see localEpochDay()
      */
-    private static class DayData {
-        double maxTemp = Double.MIN_VALUE;
-        double minTemp = Double.MAX_VALUE;
-        int weatherId = 800;
-        String description = "";
-        
-        void addTemp(double temp) {
-            if (temp > maxTemp) maxTemp = temp;
-            if (temp < minTemp) minTemp = temp;
+    static String dayName(long epochDay, long todayEpochDay) {
+        if (epochDay == todayEpochDay) {
+            return "Hôm nay";
+        } else if (epochDay == todayEpochDay + 1) {
+            return "Ngày mai";
         }
+        // 1970-01-01 was a Thursday
+        return WEEKDAY_NAMES[(int) Math.floorMod(epochDay + 4, 7L)];
+    }
+    
+    /**
+     * Calendar day of a wall clock time at a place, in days since 1970-01-01
+     * @param timezoneOffset Seconds east of UTC
+     */
+    static long localEpochDay(long utcMillis, long timezoneOffset) {
+        return Math.floorDiv(Math.floorDiv(utcMillis, 1000L) + timezoneOffset, 24 * 60 * 60);
+    }
+    
+    /**
+     * "yyyy-MM-dd" formatter for formatDay() - create one per response, not per day
+     */
+    static SimpleDateFormat newDayFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+    
+    /**
+     * A local calendar day as "yyyy-MM-dd"
+     */
+    static String formatDay(SimpleDateFormat dayFormat, long epochDay) {
+        return dayFormat.format(new Date(epochDay * 24 * 60 * 60 * 1000));
     }
 }
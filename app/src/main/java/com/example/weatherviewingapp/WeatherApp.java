@@ -0,0 +1,16 @@
+package com.example.weatherviewingapp;
+
+import android.app.Application;
+
+/**
+ * Application class - starts the cold-start warm-up (see StartupOrchestrator)
+ * before the first Activity is created
+ */
+public class WeatherApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupOrchestrator.start(this);
+    }
+}
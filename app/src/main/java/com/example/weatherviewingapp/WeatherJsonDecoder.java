@@ -0,0 +1,651 @@
+package com.example.weatherviewingapp;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON decoders for OpenWeatherMap responses
+ *
+ * Reads straight from the response InputStream with android.util.JsonReader
+ * into the app models, skipping every field we don't use. Unlike the
+ * org.json path, no String copy of the body and no JSONObject tree is built.
+ * (Cacheable responses are also copied into a byte array for the disk cache
+ * as they stream past - see WeatherApiClient.decodeAndCache.)
+ */
+public final class WeatherJsonDecoder {
+
+    private WeatherJsonDecoder() {
+    }
+
+    // ==================== Current weather (/data/2.5/weather) ====================
+
+    /**
+     * Decode a current weather response
+     */
+    public static WeatherApiClient.WeatherData decodeWeather(InputStream in) throws IOException {
+        JsonReader reader = newReader(in);
+        try {
+            return readWeather(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static WeatherApiClient.WeatherData readWeather(JsonReader reader) throws IOException {
+        long cityId = 0;
+        String cityName = null;
+        double temperature = Double.NaN;
+        double feelsLike = Double.NaN;
+        int humidity = 0;
+        int pressure = 0;
+        String condition = null;
+        String description = null;
+        int weatherId = -1;
+        double windSpeed = 0;
+        int windDeg = 0;
+        int cloudiness = 0;
+        int visibility = 0;
+        long sunrise = 0;
+        long sunset = 0;
+        double rain1h = 0;
+        double snow1h = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    cityId = reader.nextLong();
+                    break;
+                case "name":
+                    cityName = reader.nextString();
+                    break;
+                case "main":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if ("temp".equals(field)) {
+                            temperature = reader.nextDouble();
+                        } else if ("feels_like".equals(field)) {
+                            feelsLike = reader.nextDouble();
+                        } else if ("humidity".equals(field)) {
+                            humidity = reader.nextInt();
+                        } else if ("pressure".equals(field)) {
+                            pressure = reader.nextInt();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "weather":
+                    // Only the first condition is used
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String field = reader.nextName();
+                            if ("id".equals(field)) {
+                                weatherId = reader.nextInt();
+                            } else if ("main".equals(field)) {
+                                condition = reader.nextString();
+                            } else if ("description".equals(field)) {
+                                description = reader.nextString();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+                case "wind":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if ("speed".equals(field)) {
+                            windSpeed = reader.nextDouble();
+                        } else if ("deg".equals(field)) {
+                            windDeg = reader.nextInt();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "clouds":
+                    cloudiness = readIntField(reader, "all");
+                    break;
+                case "visibility":
+                    visibility = reader.nextInt();
+                    break;
+                case "sys":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if ("sunrise".equals(field)) {
+                            sunrise = reader.nextLong();
+                        } else if ("sunset".equals(field)) {
+                            sunset = reader.nextLong();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "rain":
+                    rain1h = readDoubleField(reader, "1h");
+                    break;
+                case "snow":
+                    snow1h = readDoubleField(reader, "1h");
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (cityName == null || Double.isNaN(temperature) || weatherId < 0
+                || condition == null || description == null) {
+            throw new IOException("Incomplete weather response");
+        }
+
+        WeatherApiClient.WeatherData data =
+                new WeatherApiClient.WeatherData(cityName, temperature, condition, description, weatherId);
+        data.cityId = cityId;
+        data.feelsLike = Double.isNaN(feelsLike) ? temperature : feelsLike;
+        data.humidity = humidity;
+        data.windSpeed = windSpeed;
+        data.windDeg = windDeg;
+        data.pressure = pressure;
+        data.visibility = visibility;
+        data.clouds = cloudiness;
+        data.sunrise = sunrise;
+        data.sunset = sunset;
+        data.rain1h = rain1h;
+        data.snow1h = snow1h;
+        data.uvIndex = 0; // UV not in current weather API, need separate call
+        return data;
+    }
+
+    // ==================== Several cities (/data/2.5/group) ====================
+
+    /**
+     * Decode a group response: {"cnt": n, "list": [current weather, ...]}
+     */
+    public static List<WeatherApiClient.WeatherData> decodeGroup(InputStream in) throws IOException {
+        JsonReader reader = newReader(in);
+        try {
+            List<WeatherApiClient.WeatherData> results = new ArrayList<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("list".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        results.add(readWeather(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return results;
+        } finally {
+            reader.close();
+        }
+    }
+
+    // ==================== Forecast (/data/2.5/forecast) ====================
+
+    /**
+     * Decode a 5-day / 3-hour forecast response and group it by day
+     */
+    public static List<WeatherApiClient.ForecastDay> decodeForecast(InputStream in) throws IOException {
+        JsonReader reader = newReader(in);
+        try {
+            WeatherApiClient.ForecastAccumulator accumulator = new WeatherApiClient.ForecastAccumulator();
+            boolean sawList = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("list".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    sawList = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readForecastSlot(reader, accumulator);
+                    }
+                    reader.endArray();
+                } else if ("city".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    // After the list - the accumulator only buckets slots in build()
+                    accumulator.setTimezoneOffset(readIntField(reader, "timezone"));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (!sawList) {
+                throw new IOException("Forecast response has no list");
+            }
+            return accumulator.build();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void readForecastSlot(JsonReader reader, WeatherApiClient.ForecastAccumulator accumulator)
+            throws IOException {
+        long time = -1;
+        double temp = Double.NaN;
+        int weatherId = -1;
+        String description = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("dt".equals(name)) {
+                time = reader.nextLong();
+            } else if ("main".equals(name)) {
+                temp = readDoubleField(reader, "temp", Double.NaN);
+            } else if ("weather".equals(name)) {
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if ("id".equals(field)) {
+                            weatherId = reader.nextInt();
+                        } else if ("description".equals(field)) {
+                            description = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (time < 0 || Double.isNaN(temp) || weatherId < 0 || description == null) {
+            throw new IOException("Incomplete forecast entry");
+        }
+        accumulator.addSlot(time, temp, weatherId, description);
+    }
+
+    // ==================== One call (/data/3.0/onecall) ====================
+
+    // Days of the daily forecast shown, like the 5-day forecast
+    private static final int ONECALL_DAYS = WeatherApiClient.ForecastAccumulator.MAX_DAYS;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    /**
+     * Decode a one-call response: "current" (with the UV index) into
+     * WeatherData and "daily" into ForecastDays. The response has no place
+     * name, so cityName is empty.
+     */
+    public static WeatherApiClient.OneCall decodeOneCall(InputStream in) throws IOException {
+        JsonReader reader = newReader(in);
+        try {
+            WeatherApiClient.WeatherData current = null;
+            List<Daily> daily = null;
+            long timezoneOffset = 0; // seconds east of UTC
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else if ("timezone_offset".equals(name)) {
+                    timezoneOffset = reader.nextLong();
+                } else if ("current".equals(name)) {
+                    current = readOneCallCurrent(reader);
+                } else if ("daily".equals(name)) {
+                    // Dates need timezone_offset, which may come later
+                    daily = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (daily.size() < ONECALL_DAYS) {
+                            daily.add(readDaily(reader));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (current == null || daily == null || daily.isEmpty()) {
+                throw new IOException("One call response has no current or daily data");
+            }
+
+            // Dates are local to the place: shift by its offset
+            SimpleDateFormat dayFormat = WeatherApiClient.newDayFormat();
+            long today = WeatherApiClient.localEpochDay(System.currentTimeMillis(), timezoneOffset);
+            List<WeatherApiClient.ForecastDay> forecast = new ArrayList<>(daily.size());
+            for (int i = 0; i < daily.size(); i++) {
+                Daily day = daily.get(i);
+                long epochDay = Math.floorDiv(day.time + timezoneOffset, SECONDS_PER_DAY);
+                forecast.add(new WeatherApiClient.ForecastDay(WeatherApiClient.formatDay(dayFormat, epochDay),
+                        WeatherApiClient.dayName(epochDay, today), day.weatherId, day.maxTemp, day.minTemp,
+                        day.description));
+            }
+            return new WeatherApiClient.OneCall(current, forecast);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static WeatherApiClient.WeatherData readOneCallCurrent(JsonReader reader) throws IOException {
+        double temperature = Double.NaN;
+        double feelsLike = Double.NaN;
+        int humidity = 0;
+        int pressure = 0;
+        Condition condition = null;
+        double windSpeed = 0;
+        int windDeg = 0;
+        int cloudiness = 0;
+        int visibility = 0;
+        long sunrise = 0;
+        long sunset = 0;
+        double uvIndex = 0;
+        double rain1h = 0;
+        double snow1h = 0;
+
+        // Same values as /data/2.5/weather, but flat: "temp" instead of "main.temp"...
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "temp":
+                    temperature = reader.nextDouble();
+                    break;
+                case "feels_like":
+                    feelsLike = reader.nextDouble();
+                    break;
+                case "humidity":
+                    humidity = reader.nextInt();
+                    break;
+                case "pressure":
+                    pressure = reader.nextInt();
+                    break;
+                case "weather":
+                    condition = readCondition(reader);
+                    break;
+                case "wind_speed":
+                    windSpeed = reader.nextDouble();
+                    break;
+                case "wind_deg":
+                    windDeg = reader.nextInt();
+                    break;
+                case "clouds":
+                    cloudiness = reader.nextInt();
+                    break;
+                case "visibility":
+                    visibility = reader.nextInt();
+                    break;
+                case "sunrise":
+                    sunrise = reader.nextLong();
+                    break;
+                case "sunset":
+                    sunset = reader.nextLong();
+                    break;
+                case "uvi":
+                    uvIndex = reader.nextDouble();
+                    break;
+                case "rain":
+                    rain1h = readDoubleField(reader, "1h");
+                    break;
+                case "snow":
+                    snow1h = readDoubleField(reader, "1h");
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (Double.isNaN(temperature) || condition == null) {
+            throw new IOException("Incomplete one call current weather");
+        }
+
+        WeatherApiClient.WeatherData data = new WeatherApiClient.WeatherData("", temperature,
+                condition.main, condition.description, condition.id);
+        data.feelsLike = Double.isNaN(feelsLike) ? temperature : feelsLike;
+        data.humidity = humidity;
+        data.windSpeed = windSpeed;
+        data.windDeg = windDeg;
+        data.pressure = pressure;
+        data.visibility = visibility;
+        data.clouds = cloudiness;
+        data.sunrise = sunrise;
+        data.sunset = sunset;
+        data.rain1h = rain1h;
+        data.snow1h = snow1h;
+        data.uvIndex = uvIndex;
+        return data;
+    }
+
+    private static Daily readDaily(JsonReader reader) throws IOException {
+        Daily day = new Daily();
+        Condition condition = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if ("dt".equals(name)) {
+                day.time = reader.nextLong();
+            } else if ("temp".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if ("min".equals(field)) {
+                        day.minTemp = reader.nextDouble();
+                    } else if ("max".equals(field)) {
+                        day.maxTemp = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("weather".equals(name)) {
+                condition = readCondition(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (day.time == 0 || Double.isNaN(day.minTemp) || Double.isNaN(day.maxTemp) || condition == null) {
+            throw new IOException("Incomplete one call daily entry");
+        }
+        day.weatherId = condition.id;
+        day.description = condition.description;
+        return day;
+    }
+
+    /**
+     * First entry of a "weather" array (null if empty or incomplete)
+     */
+    private static Condition readCondition(JsonReader reader) throws IOException {
+        Condition condition = new Condition();
+        reader.beginArray();
+        if (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else if ("id".equals(field)) {
+                    condition.id = reader.nextInt();
+                } else if ("main".equals(field)) {
+                    condition.main = reader.nextString();
+                } else if ("description".equals(field)) {
+                    condition.description = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return condition.id >= 0 && condition.main != null && condition.description != null ? condition : null;
+    }
+
+    private static class Condition {
+        int id = -1;
+        String main;
+        String description;
+    }
+
+    /**
+     * One "daily" entry, kept until timezone_offset is known
+     */
+    private static class Daily {
+        long time; // dt, UTC seconds (midday local time)
+        double minTemp = Double.NaN;
+        double maxTemp = Double.NaN;
+        int weatherId;
+        String description;
+    }
+
+    // ==================== Geocoding (/geo/1.0/direct) ====================
+
+    /**
+     * Decode a geocoding response (array of places)
+     */
+    public static List<WeatherApiClient.GeoResult> decodeGeocoding(InputStream in) throws IOException {
+        JsonReader reader = newReader(in);
+        try {
+            List<WeatherApiClient.GeoResult> results = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                WeatherApiClient.GeoResult result = readGeoResult(reader);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            reader.endArray();
+            return results;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static WeatherApiClient.GeoResult readGeoResult(JsonReader reader) throws IOException {
+        String name = null;
+        String state = "";
+        String country = "";
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if ("name".equals(field)) {
+                name = reader.nextString();
+            } else if ("state".equals(field)) {
+                state = reader.nextString();
+            } else if ("country".equals(field)) {
+                country = reader.nextString();
+            } else if ("lat".equals(field)) {
+                lat = reader.nextDouble();
+            } else if ("lon".equals(field)) {
+                lon = reader.nextDouble();
+            } else {
+                // local_names is the bulk of the payload
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (name == null || Double.isNaN(lat) || Double.isNaN(lon)) {
+            return null;
+        }
+        return new WeatherApiClient.GeoResult(name, state, country, lat, lon);
+    }
+
+    // ==================== Helpers ====================
+
+    private static JsonReader newReader(InputStream in) {
+        // PooledReader decodes UTF-8 through a pooled buffer (see BufferPool)
+        JsonReader reader = new JsonReader(new PooledReader(in));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Read {"field": int, ...} and return field (0 if absent)
+     */
+    private static int readIntField(JsonReader reader, String wanted) throws IOException {
+        int value = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (wanted.equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                value = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    private static double readDoubleField(JsonReader reader, String wanted) throws IOException {
+        return readDoubleField(reader, wanted, 0);
+    }
+
+    /**
+     * Read {"field": double, ...} and return field (fallback if absent)
+     */
+    private static double readDoubleField(JsonReader reader, String wanted, double fallback) throws IOException {
+        double value = fallback;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (wanted.equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                value = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.weatherviewingapp;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Day grouping and "Hôm nay" / "Ngày mai" labels of the 5-day forecast,
+ * with a fixed clock. Plain JVM test - ForecastAccumulator uses no Android
+ * classes.
+ */
+public class ForecastAccumulatorTest {
+
+    private static final long HANOI_OFFSET = 7 * 60 * 60; // UTC+7
+    private static final long SLOT_SECONDS = 3 * 60 * 60;
+
+    @Test
+    public void firstSlotAfterLocalMidnightIsTomorrow() {
+        // Fetched at 23:30 on 2023-11-14 in Hanoi, the first slot is 00:00 on the 15th
+        long now = 1699979400000L; // 2023-11-14 16:30 UTC
+        List<WeatherApiClient.ForecastDay> days = buildHanoi(1699981200L, now);
+
+        assertEquals("2023-11-15", days.get(0).date);
+        assertEquals("Ngày mai", days.get(0).dayName);
+        assertEquals("2023-11-16", days.get(1).date);
+        assertEquals("T5", days.get(1).dayName);
+        assertEquals("T6", days.get(2).dayName);
+    }
+
+    @Test
+    public void forecastFromYesterdayStartsWithAWeekday() {
+        // Fetched on the 15th, shown at 00:30 on the 16th
+        long now = 1700069400000L; // 2023-11-15 17:30 UTC
+        List<WeatherApiClient.ForecastDay> days = buildHanoi(1699981200L, now);
+
+        assertEquals("T4", days.get(0).dayName);
+        assertEquals("2023-11-16", days.get(1).date);
+        assertEquals("Hôm nay", days.get(1).dayName);
+        assertEquals("Ngày mai", days.get(2).dayName);
+    }
+
+    @Test
+    public void todayIsTheLocalDayNotTheUtcDay() {
+        // 20:00 UTC on 2023-11-14 is already the 15th in Hanoi
+        long now = 1699992000000L;
+        assertEquals(WeatherApiClient.localEpochDay(now, 0) + 1, WeatherApiClient.localEpochDay(now, HANOI_OFFSET));
+        // ... and still the 14th in New York (UTC-5)
+        assertEquals(WeatherApiClient.localEpochDay(now, 0), WeatherApiClient.localEpochDay(now, -5 * 60 * 60));
+
+        List<WeatherApiClient.ForecastDay> days = buildHanoi(1699981200L, now);
+        assertEquals("2023-11-15", days.get(0).date);
+        assertEquals("Hôm nay", days.get(0).dayName);
+    }
+
+    /**
+     * 24 three-hour slots (3 days) from firstSlot (UTC seconds), labelled at now (ms)
+     */
+    private static List<WeatherApiClient.ForecastDay> buildHanoi(long firstSlot, long now) {
+        WeatherApiClient.ForecastAccumulator accumulator = new WeatherApiClient.ForecastAccumulator();
+        for (int i = 0; i < 24; i++) {
+            accumulator.addSlot(firstSlot + i * SLOT_SECONDS, 20 + i, 800, "bầu trời quang đãng");
+        }
+        accumulator.setTimezoneOffset(HANOI_OFFSET);
+        return accumulator.build(now);
+    }
+}
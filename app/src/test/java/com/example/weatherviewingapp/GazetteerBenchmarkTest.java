@@ -0,0 +1,106 @@
+package com.example.weatherviewingapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Offline gazetteer: search results and lookup latency on the generated
+ * gazetteer.bin (path passed in by the Gradle test task).
+ *
+ * The latency measurement is only logged, and only runs when asked for:
+ * ./gradlew testDebugUnitTest -PgazetteerBenchmarks
+ */
+public class GazetteerBenchmarkTest {
+
+    // A plain JVM test (no Robolectric), so android.util.Log is not available
+    private static final Logger LOG = Logger.getLogger("GazetteerBenchmark");
+
+    private static final int ITERATIONS = 20000;
+
+    private Gazetteer gazetteer;
+
+    @Before
+    public void setUp() throws Exception {
+        String path = System.getProperty("gazetteer.file");
+        assumeTrue("gazetteer.file not set", path != null && new File(path).isFile());
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            MappedByteBuffer data = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            gazetteer = new Gazetteer(data);
+        }
+    }
+
+    @Test
+    public void search_matchesFoldedNames() {
+        assertEquals("Hanoi", first("Hà Nội").name);
+        assertEquals("Hanoi", first("ha noi").name);
+        assertEquals("Ho Chi Minh City", first("Hồ Chí").name);
+        assertEquals("Ho Chi Minh City", first("saig").name);
+        assertEquals("Da Nang", first("Đà Nẵ").name);
+
+        WeatherApiClient.GeoResult hanoi = first("hanoi");
+        assertEquals("VN", hanoi.country);
+        assertEquals(21.0285, hanoi.lat, 0.001);
+        assertEquals(105.8542, hanoi.lon, 0.001);
+    }
+
+    @Test
+    public void search_ranksByPopulation() {
+        List<String> names = new ArrayList<>();
+        for (WeatherApiClient.GeoResult result : gazetteer.search("han", 5)) {
+            names.add(result.name);
+        }
+        assertEquals(Arrays.asList("Hangzhou", "Hanoi", "Hanover"), names);
+        assertEquals(2, gazetteer.search("han", 2).size());
+    }
+
+    @Test
+    public void search_unknownPrefixIsEmpty() {
+        assertTrue(gazetteer.search("zzzq", 5).isEmpty());
+        assertTrue(gazetteer.search("  ", 5).isEmpty());
+    }
+
+    @Test
+    public void lookupLatency() {
+        assumeTrue("gazetteer.benchmarks not set", Boolean.getBoolean("gazetteer.benchmarks"));
+        String[] queries = {"h", "ha", "han", "hano", "ho chi", "da n", "sai", "ber", "new y", "lon", "tok", "xyz"};
+
+        // Warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            gazetteer.search(queries[i % queries.length], 5);
+        }
+
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            gazetteer.search(queries[i % queries.length], 5);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        long median = nanos[ITERATIONS / 2];
+        long p99 = nanos[ITERATIONS * 99 / 100];
+
+        // Must be fast enough to run on every keystroke (well under 1 ms)
+        LOG.info(String.format(Locale.US,
+                "Gazetteer (%d places): median %.1f us, p99 %.1f us per lookup",
+                gazetteer.size(), median / 1000.0, p99 / 1000.0));
+    }
+
+    private WeatherApiClient.GeoResult first(String query) {
+        List<WeatherApiClient.GeoResult> results = gazetteer.search(query, 5);
+        assertFalse("no results for " + query, results.isEmpty());
+        return results.get(0);
+    }
+}
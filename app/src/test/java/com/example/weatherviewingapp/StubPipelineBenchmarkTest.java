@@ -0,0 +1,143 @@
+package com.example.weatherviewingapp;
+
+import android.app.Application;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Timings of the fetch + decode pipeline against a slow StubWeatherServer.
+ *
+ * Wall-clock numbers under simulated latency are too noisy to assert on, so
+ * these only log them and are skipped unless asked for:
+ * ./gradlew testDebugUnitTest -PstubBenchmarks
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class StubPipelineBenchmarkTest {
+
+    private static final String TAG = "StubPipelineBenchmark";
+
+    private static final int BENCHMARK_REQUESTS = 200;
+    private static final int BENCHMARK_THREADS = 8;
+    private static final long STUB_LATENCY_MS = 20;
+    private static final int STRATEGY_ROUNDS = 100;
+    private static final long STRATEGY_MIN_LATENCY_MS = 10;
+    private static final long STRATEGY_MAX_LATENCY_MS = 60;
+
+    private StubWeatherServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("stub.benchmarks not set", Boolean.getBoolean("stub.benchmarks"));
+        server = new StubWeatherServer();
+        WeatherApiClient.setBaseUrl(server.getBaseUrl());
+        CircuitBreaker.resetAll();
+    }
+
+    @After
+    public void tearDown() {
+        WeatherApiClient.setBaseUrl(null);
+        CircuitBreaker.resetAll();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void latencyBenchmark() throws Exception {
+        server.setLatency(STUB_LATENCY_MS);
+        WeatherApiClient.requestWeather("Hanoi"); // warm up the connection pool
+
+        ExecutorService pool = Executors.newFixedThreadPool(BENCHMARK_THREADS);
+        try {
+            List<Future<Long>> calls = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < BENCHMARK_REQUESTS; i++) {
+                final boolean forecast = i % 2 == 1;
+                calls.add(pool.submit(() -> {
+                    long callStart = System.nanoTime();
+                    if (forecast) {
+                        WeatherApiClient.requestForecast("Hanoi");
+                    } else {
+                        WeatherApiClient.requestWeather("Hanoi");
+                    }
+                    return System.nanoTime() - callStart;
+                }));
+            }
+            long[] nanos = new long[BENCHMARK_REQUESTS];
+            for (int i = 0; i < BENCHMARK_REQUESTS; i++) {
+                nanos[i] = calls.get(i).get(30, TimeUnit.SECONDS);
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(nanos);
+
+            Log.i(TAG, String.format(Locale.US,
+                    "Stub pipeline (%d ms latency, %d threads): %d calls in %d ms, %.0f calls/s, "
+                            + "median %.1f ms, p99 %.1f ms per call",
+                    STUB_LATENCY_MS, BENCHMARK_THREADS, BENCHMARK_REQUESTS, elapsed / 1000000,
+                    BENCHMARK_REQUESTS * 1e9 / elapsed, nanos[BENCHMARK_REQUESTS / 2] / 1e6,
+                    nanos[BENCHMARK_REQUESTS * 99 / 100] / 1e6));
+            Log.i(TAG, EndpointMetrics.dumpStats());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void oneCallVersusTwoCallsBenchmark() throws Exception {
+        // Jittered latency: two parallel requests wait for the slower of the two
+        server.setLatency(STRATEGY_MIN_LATENCY_MS, STRATEGY_MAX_LATENCY_MS);
+        final double lat = 21.0245;
+        final double lon = 105.8412;
+        WeatherApiClient.requestWeather("Hanoi"); // warm up the connection pool
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            long[] twoCalls = new long[STRATEGY_ROUNDS];
+            long[] oneCall = new long[STRATEGY_ROUNDS];
+            for (int i = 0; i < STRATEGY_ROUNDS; i++) {
+                long start = System.nanoTime();
+                Future<?> weather = pool.submit(() -> WeatherApiClient.requestWeatherByCoordinates(lat, lon));
+                Future<?> forecast = pool.submit(() -> WeatherApiClient.requestForecastByCoordinates(lat, lon));
+                weather.get(30, TimeUnit.SECONDS);
+                forecast.get(30, TimeUnit.SECONDS);
+                twoCalls[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                WeatherApiClient.requestOneCall(lat, lon);
+                oneCall[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(twoCalls);
+            Arrays.sort(oneCall);
+
+            Log.i(TAG, String.format(Locale.US,
+                    "Weather + forecast (%d-%d ms latency, %d rounds): two calls median %.1f ms, p99 %.1f ms, "
+                            + "%d requests; one call median %.1f ms, p99 %.1f ms, %d requests",
+                    STRATEGY_MIN_LATENCY_MS, STRATEGY_MAX_LATENCY_MS, STRATEGY_ROUNDS,
+                    twoCalls[STRATEGY_ROUNDS / 2] / 1e6, twoCalls[STRATEGY_ROUNDS * 99 / 100] / 1e6,
+                    server.getRequestCount(StubWeatherServer.WEATHER_PATH) - 1
+                            + server.getRequestCount(StubWeatherServer.FORECAST_PATH),
+                    oneCall[STRATEGY_ROUNDS / 2] / 1e6, oneCall[STRATEGY_ROUNDS * 99 / 100] / 1e6,
+                    server.getRequestCount(StubWeatherServer.ONECALL_PATH)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
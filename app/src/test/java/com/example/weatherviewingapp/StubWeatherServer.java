@@ -0,0 +1,228 @@
+package com.example.weatherviewingapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local OpenWeatherMap stand-in for offline tests and benchmarks
+ *
+ * Replays the recorded fixtures in src/test/resources/stub/ for
+ * /data/2.5/weather, /data/2.5/forecast, /data/3.0/onecall and /geo/1.0/direct on 127.0.0.1
+ * (query parameters are ignored). Bodies are gzipped when the client asks,
+ * like the real API. Latency, error statuses and 429s can be injected.
+ *
+ * Point the app at it with WeatherApiClient.setBaseUrl(server.getBaseUrl()).
+ */
+public class StubWeatherServer implements Closeable {
+
+    public static final String WEATHER_PATH = "/data/2.5/weather";
+    public static final String FORECAST_PATH = "/data/2.5/forecast";
+    public static final String GEOCODING_PATH = "/geo/1.0/direct";
+    public static final String ONECALL_PATH = "/data/3.0/onecall";
+
+    private static final int THREADS = 16;
+
+    static {
+        // Headers and body go out in separate writes; without this, Nagle + delayed
+        // ACKs add ~40 ms to every keep-alive response and swamp the numbers
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final Map<String, byte[]> fixtures = new HashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final ArrayDeque<Fault> faults = new ArrayDeque<>();
+
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile String etag;
+
+    /**
+     * Start on a free port
+     */
+    public StubWeatherServer() throws IOException {
+        fixtures.put(WEATHER_PATH, fixture("weather.json"));
+        fixtures.put(FORECAST_PATH, fixture("forecast.json"));
+        fixtures.put(GEOCODING_PATH, fixture("geo.json"));
+        fixtures.put(ONECALL_PATH, fixture("onecall.json"));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * e.g. "http://127.0.0.1:41234" - for WeatherApiClient.setBaseUrl()
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delay every response by this long before the headers are sent
+     */
+    public void setLatency(long millis) {
+        setLatency(millis, millis);
+    }
+
+    /**
+     * Delay every response by a random time in [min, max] ms
+     */
+    public void setLatency(long minMillis, long maxMillis) {
+        minLatencyMillis = minMillis;
+        maxLatencyMillis = maxMillis;
+    }
+
+    /**
+     * Send this ETag with every 200 (null = none), so the client keeps the
+     * decoded value for revalidation
+     */
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * Answer the next count requests with this status (and a small error body)
+     */
+    public void failNext(int count, int status) {
+        addFaults(count, new Fault(status, null));
+    }
+
+    /**
+     * Answer the next count requests with 429 and Retry-After: retryAfterSeconds
+     */
+    public void rateLimitNext(int count, int retryAfterSeconds) {
+        addFaults(count, new Fault(429, String.valueOf(retryAfterSeconds)));
+    }
+
+    private void addFaults(int count, Fault fault) {
+        synchronized (faults) {
+            for (int i = 0; i < count; i++) {
+                faults.add(fault);
+            }
+        }
+    }
+
+    /**
+     * Requests received for a path (including failed ones)
+     */
+    public int getRequestCount(String path) {
+        AtomicInteger count = requestCounts.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ==================== Handler ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            sleepLatency();
+
+            Fault fault;
+            synchronized (faults) {
+                fault = faults.poll();
+            }
+            byte[] body = fixtures.get(path);
+            if (fault != null) {
+                if (fault.retryAfter != null) {
+                    exchange.getResponseHeaders().set("Retry-After", fault.retryAfter);
+                }
+                send(exchange, fault.status, ("{\"cod\":" + fault.status + ",\"message\":\"stub fault\"}").getBytes("UTF-8"));
+            } else if (body == null) {
+                send(exchange, 404, "{\"cod\":\"404\",\"message\":\"city not found\"}".getBytes("UTF-8"));
+            } else {
+                if (etag != null) {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                }
+                send(exchange, 200, body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sleepLatency() {
+        long min = minLatencyMillis;
+        long max = maxLatencyMillis;
+        long millis = max > min ? ThreadLocalRandom.current().nextLong(min, max + 1) : min;
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(body);
+            }
+            body = gzipped.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = StubWeatherServer.class.getClassLoader().getResourceAsStream("stub/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture stub/" + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static class Fault {
+        final int status;
+        final String retryAfter; // null = no header
+
+        Fault(int status, String retryAfter) {
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+    }
+}
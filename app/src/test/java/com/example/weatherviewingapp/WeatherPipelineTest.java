@@ -0,0 +1,185 @@
+package com.example.weatherviewingapp;
+
+import android.app.Application;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fetch + decode pipeline end to end against StubWeatherServer: real
+ * HttpTransport, retries, circuit breaker and JSON decoding, no network.
+ *
+ * Runs on Robolectric because the decoder and the retry logging use
+ * android.util classes. A plain Application replaces WeatherApp, so the
+ * startup warm-up doesn't run and the disk cache and quota governor are not
+ * initialised: every call reaches the stub.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(application = Application.class)
+public class WeatherPipelineTest {
+
+    private static final int STRATEGY_ROUNDS = 5;
+
+    private StubWeatherServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubWeatherServer();
+        WeatherApiClient.setBaseUrl(server.getBaseUrl());
+        CircuitBreaker.resetAll();
+    }
+
+    @After
+    public void tearDown() {
+        WeatherApiClient.setBaseUrl(null);
+        CircuitBreaker.resetAll();
+        server.close();
+    }
+
+    @Test
+    public void fetchesAndDecodesEveryEndpoint() throws Exception {
+        WeatherApiClient.WeatherData weather = WeatherApiClient.requestWeather("Hanoi");
+        assertEquals("Hanoi", weather.cityName);
+        assertEquals(1581130, weather.cityId);
+        assertEquals(28.5, weather.temperature, 0.0);
+        assertEquals("mây cụm", weather.description);
+
+        // Hanoi local days (UTC+7), in order
+        List<WeatherApiClient.ForecastDay> forecast = WeatherApiClient.requestForecastByCoordinates(21.0245, 105.8412);
+        List<String> dates = new ArrayList<>();
+        for (WeatherApiClient.ForecastDay day : forecast) {
+            assertTrue(day.maxTemp >= day.minTemp);
+            dates.add(day.date);
+        }
+        assertEquals(Arrays.asList("2023-11-15", "2023-11-16", "2023-11-17", "2023-11-18", "2023-11-19"), dates);
+        // The fixture days are long past, so none is "Hôm nay" (see ForecastAccumulatorTest)
+        assertEquals("T4", forecast.get(0).dayName);
+        assertEquals("T5", forecast.get(1).dayName);
+        assertEquals("T6", forecast.get(2).dayName);
+        assertEquals(29.3, forecast.get(1).maxTemp, 0.0);
+        assertEquals(19.3, forecast.get(1).minTemp, 0.0);
+
+        List<WeatherApiClient.GeoResult> places = WeatherApiClient.requestGeocoding("Hà Nội", 5);
+        assertEquals(2, places.size());
+        assertEquals("VN", places.get(0).country);
+        assertEquals(21.0283, places.get(0).lat, 0.001);
+
+        assertEquals(1, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+        assertEquals(1, server.getRequestCount(StubWeatherServer.FORECAST_PATH));
+        assertEquals(1, server.getRequestCount(StubWeatherServer.GEOCODING_PATH));
+    }
+
+    @Test
+    public void oneCallDecodesCurrentUvAndDailyForecast() throws Exception {
+        WeatherApiClient.OneCall result = WeatherApiClient.requestOneCall(21.0245, 105.8412);
+
+        assertEquals(28.5, result.weather.temperature, 0.0);
+        assertEquals("mây cụm", result.weather.description);
+        assertEquals(5.6, result.weather.uvIndex, 0.0);
+        assertEquals("Trung bình", result.weather.getUvIndexLevel());
+
+        // Daily entries are dated in the place's time zone (UTC+7), first day first
+        assertEquals(5, result.forecast.size());
+        assertEquals("2023-11-15", result.forecast.get(0).date);
+        assertEquals("T4", result.forecast.get(0).dayName);
+        assertEquals("2023-11-19", result.forecast.get(4).date);
+        assertEquals(29.3, result.forecast.get(0).maxTemp, 0.0);
+        assertEquals(22.1, result.forecast.get(0).minTemp, 0.0);
+
+        assertEquals(1, server.getRequestCount(StubWeatherServer.ONECALL_PATH));
+        assertEquals(0, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+        assertEquals(0, server.getRequestCount(StubWeatherServer.FORECAST_PATH));
+    }
+
+    @Test
+    public void warmUpSendsNoApiRequest() throws Exception {
+        WeatherApiClient.warmUp();
+
+        // One HEAD to the host root, then the real call
+        assertEquals(1, server.getRequestCount("/"));
+        assertEquals("Hanoi", WeatherApiClient.requestWeather("Hanoi").cityName);
+        assertEquals(1, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+        assertFalse(EndpointMetrics.getEndpoints().contains("/"));
+    }
+
+    @Test
+    public void serverErrorIsRetried() throws Exception {
+        server.failNext(1, 503);
+
+        assertEquals("Hanoi", WeatherApiClient.requestWeather("Hanoi").cityName);
+        assertEquals(2, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+    }
+
+    @Test
+    public void unknownCityIsNotFoundAndNotRetried() throws Exception {
+        server.failNext(1, 404);
+        try {
+            WeatherApiClient.requestWeather("Atlantis");
+            fail("Expected NOT_FOUND");
+        } catch (ApiError e) {
+            assertEquals(ApiError.Kind.NOT_FOUND, e.getKind());
+        }
+        assertEquals(1, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+    }
+
+    @Test
+    public void outageServesTheCachedCopyMarkedStale() throws Exception {
+        server.setEtag("\"v1\"");
+        WeatherApiClient.WeatherData fresh = WeatherApiClient.requestWeather("Hanoi");
+        assertFalse(fresh.stale);
+        assertTrue(fresh.savedAt > 0);
+
+        // 429 is not retried and opens the breaker; the last copy comes back marked as old
+        server.rateLimitNext(1, 60);
+        WeatherApiClient.WeatherData stale = WeatherApiClient.requestWeather("Hanoi");
+        assertTrue(stale.stale);
+        assertEquals(28.5, stale.temperature, 0.0);
+        assertFalse("the shared cached copy must not be marked", fresh.stale);
+        assertEquals(2, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+    }
+
+    @Test
+    public void rateLimitOpensTheBreakerAtOnce() throws Exception {
+        server.rateLimitNext(1, 60);
+        try {
+            WeatherApiClient.requestWeather("Hanoi");
+            fail("Expected RATE_LIMITED");
+        } catch (ApiError e) {
+            assertEquals(ApiError.Kind.RATE_LIMITED, e.getKind());
+            assertEquals(429, e.getHttpCode());
+            assertEquals(60000, e.getRetryAfterMillis());
+        }
+
+        // Retrying would only burn quota: the next call is refused without a request
+        try {
+            WeatherApiClient.requestWeather("Hanoi");
+            fail("Expected CIRCUIT_OPEN");
+        } catch (ApiError e) {
+            assertEquals(ApiError.Kind.CIRCUIT_OPEN, e.getKind());
+        }
+        assertEquals(1, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+    }
+
+    @Test
+    public void oneCallTakesOneRequestInsteadOfTwo() throws Exception {
+        for (int i = 0; i < STRATEGY_ROUNDS; i++) {
+            WeatherApiClient.requestWeatherByCoordinates(21.0245, 105.8412);
+            WeatherApiClient.requestForecastByCoordinates(21.0245, 105.8412);
+            WeatherApiClient.requestOneCall(21.0245, 105.8412);
+        }
+
+        assertEquals(STRATEGY_ROUNDS, server.getRequestCount(StubWeatherServer.WEATHER_PATH));
+        assertEquals(STRATEGY_ROUNDS, server.getRequestCount(StubWeatherServer.FORECAST_PATH));
+        assertEquals(STRATEGY_ROUNDS, server.getRequestCount(StubWeatherServer.ONECALL_PATH));
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.weatherviewingapp.gazetteer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the city list (app/gazetteer/cities.tsv, or a GeoNames dump) into
+ * the binary gazetteer read by com.example.weatherviewingapp.Gazetteer
+ *
+ * Layout (big-endian):
+ *   Header  8 ints: magic "GZT1", version, place count, key count,
+ *           places offset, keys offset, strings offset, 0
+ *   Places  20 bytes each: name offset (int), lat (float), lon (float),
+ *           population (int), country code (2 ASCII bytes), 2 bytes padding
+ *   Keys    8 bytes each: folded name offset (int), place index (int),
+ *           sorted by folded name, then population (largest first)
+ *   Strings u16 length + UTF-8 bytes
+ *
+ * A place gets one key per distinct folded name (name + alternate names).
+ * fold() must stay identical to Gazetteer.fold() in the app.
+ */
+public final class GazetteerGenerator {
+
+    static final int MAGIC = 0x475A5431; // "GZT1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int PLACE_SIZE = 20;
+    static final int KEY_SIZE = 8;
+
+    private GazetteerGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GazetteerGenerator <cities.tsv> <gazetteer.bin>");
+            System.exit(1);
+        }
+        int count = generate(new File(args[0]), new File(args[1]));
+        System.out.println("Wrote " + count + " places to " + args[1]);
+    }
+
+    /**
+     * @return number of places written
+     */
+    public static int generate(File source, File output) throws IOException {
+        List<Place> places = read(source);
+
+        // Keep the biggest places first, so equal keys end up population-ranked
+        places.sort((a, b) -> Integer.compare(b.population, a.population));
+
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < places.size(); i++) {
+            for (String folded : places.get(i).foldedNames) {
+                keys.add(new Key(folded, i));
+            }
+        }
+        keys.sort((a, b) -> {
+            int byName = compareUtf8(a.folded, b.folded);
+            return byName != 0 ? byName : Integer.compare(a.place, b.place);
+        });
+
+        // String pool (names and keys), shared when equal
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        DataOutputStream stringsOut = new DataOutputStream(strings);
+        Map<String, Integer> stringOffsets = new HashMap<>();
+
+        int placesOffset = HEADER_SIZE;
+        int keysOffset = placesOffset + places.size() * PLACE_SIZE;
+        int stringsOffset = keysOffset + keys.size() * KEY_SIZE;
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(places.size());
+        out.writeInt(keys.size());
+        out.writeInt(placesOffset);
+        out.writeInt(keysOffset);
+        out.writeInt(stringsOffset);
+        out.writeInt(0);
+
+        for (Place place : places) {
+            out.writeInt(intern(place.name, stringOffsets, stringsOut));
+            out.writeFloat((float) place.lat);
+            out.writeFloat((float) place.lon);
+            out.writeInt(place.population);
+            out.writeByte(place.country.length() > 0 ? place.country.charAt(0) : ' ');
+            out.writeByte(place.country.length() > 1 ? place.country.charAt(1) : ' ');
+            out.writeShort(0);
+        }
+        for (Key key : keys) {
+            out.writeInt(intern(key.folded, stringOffsets, stringsOut));
+            out.writeInt(key.place);
+        }
+        out.flush();
+        stringsOut.flush();
+
+        try (FileOutputStream file = new FileOutputStream(output)) {
+            body.writeTo(file);
+            strings.writeTo(file);
+        }
+        return places.size();
+    }
+
+    // ==================== Input ====================
+
+    private static List<Place> read(File source) throws IOException {
+        List<Place> places = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] cols = line.split("\t", -1);
+                try {
+                    places.add(cols.length >= 15 ? fromGeoNames(cols) : fromTsv(cols));
+                } catch (RuntimeException e) {
+                    throw new IOException(source.getName() + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return places;
+    }
+
+    /**
+     * name, alternate names, country, lat, lon, population
+     */
+    private static Place fromTsv(String[] cols) {
+        if (cols.length < 6) {
+            throw new IllegalArgumentException("expected 6 columns, got " + cols.length);
+        }
+        return new Place(cols[0], cols[1].split(","), cols[2],
+                Double.parseDouble(cols[3]), Double.parseDouble(cols[4]), Integer.parseInt(cols[5]));
+    }
+
+    /**
+     * GeoNames "cities" dump: 1 name, 2 ascii name, 3 alternate names, 4 lat, 5 lon,
+     * 8 country code, 14 population
+     */
+    private static Place fromGeoNames(String[] cols) {
+        String[] alternates = (cols[2] + "," + cols[3]).split(",");
+        long population = cols[14].isEmpty() ? 0 : Long.parseLong(cols[14]);
+        return new Place(cols[1], alternates, cols[8],
+                Double.parseDouble(cols[4]), Double.parseDouble(cols[5]),
+                (int) Math.min(Integer.MAX_VALUE, population));
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Search key: no diacritics, lower case, letters and digits only
+     * ("Hà Nội" -> "hanoi", "Ho Chi Minh City" -> "hochiminhcity").
+     * Must match Gazetteer.fold() in the app.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c == 'đ' || c == 'Đ') {
+                sb.append('d');
+            } else if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static int intern(String value, Map<String, Integer> offsets, DataOutputStream strings)
+            throws IOException {
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("String too long: " + value);
+            }
+            offset = strings.size();
+            strings.writeShort(bytes.length);
+            strings.write(bytes);
+            offsets.put(value, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Unsigned byte order of the UTF-8 encodings (what the app compares)
+     */
+    private static int compareUtf8(String a, String b) {
+        byte[] x = a.getBytes(StandardCharsets.UTF_8);
+        byte[] y = b.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(x.length, y.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (x[i] & 0xFF) - (y[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return x.length - y.length;
+    }
+
+    private static class Place {
+        final String name;
+        final Set<String> foldedNames = new LinkedHashSet<>();
+        final String country;
+        final double lat;
+        final double lon;
+        final int population;
+
+        Place(String name, String[] alternates, String country, double lat, double lon, int population) {
+            this.name = name.trim();
+            this.country = country.trim().toUpperCase(Locale.ROOT);
+            this.lat = lat;
+            this.lon = lon;
+            this.population = population;
+            addKey(this.name);
+            for (String alternate : alternates) {
+                addKey(alternate);
+            }
+            if (foldedNames.isEmpty()) {
+                throw new IllegalArgumentException("no searchable name for '" + name + "'");
+            }
+        }
+
+        private void addKey(String name) {
+            String folded = fold(name.trim());
+            if (!folded.isEmpty()) {
+                foldedNames.add(folded);
+            }
+        }
+    }
+
+    private static class Key {
+        final String folded;
+        final int place;
+
+        Key(String folded, int place) {
+            this.folded = folded;
+            this.place = place;
+        }
+    }
+}
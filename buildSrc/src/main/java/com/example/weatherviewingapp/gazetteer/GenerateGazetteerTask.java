@@ -0,0 +1,35 @@
+package com.example.weatherviewingapp.gazetteer;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builds assets/gazetteer.bin from the city list (see GazetteerGenerator)
+ */
+public abstract class GenerateGazetteerTask extends DefaultTask {
+
+    public static final String FILE_NAME = "gazetteer.bin";
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getSource();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @TaskAction
+    public void generate() throws IOException {
+        File output = getOutputDir().file(FILE_NAME).get().getAsFile();
+        int count = GazetteerGenerator.generate(getSource().get().getAsFile(), output);
+        getLogger().info("Gazetteer: " + count + " places -> " + output);
+    }
+}